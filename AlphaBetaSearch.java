@@ -0,0 +1,553 @@
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/** Time-bounded iterative-deepening minimax search with alpha-beta pruning.
+ * One ply is the same move model the bots already simulate: we attack from one of our planets
+ * (with more than one ship) to a planet that is not ours, ships grow, the opponent attacks from
+ * one of its planets to a planet that is not its own, and ships grow again. Every opponent reply
+ * is considered (unless the generator's width is capped), so the opponent is the minimizing player.
+ * Moves are tried best-first by the bots' attack heuristic (see MoveGenerator), which makes the
+ * cutoffs come early.
+ *
+ * The search deepens one ply at a time on a single SimulationState (make/unmake, no copies) and
+ * returns the best root move of the last completed depth once the turn deadline is close.
+ * The time limit and maximum depth default to the system properties search.timeLimit (ms)
+ * and search.maxDepth.
+ *
+ * If a TranspositionTable is set, positions that were already searched to the same depth (for
+ * example reached by playing two attacks in a different order) are not expanded again, and the
+ * stored best move is searched first. Wins and losses are stored counted from the position rather
+ * than the root, so a transposition at another ply still gets the right distance to the end.
+ *
+ * With more than one thread (system property search.threads) the root moves of every iteration
+ * are shared out between workers, each with its own copy of the position and its own slice of
+ * the transposition table. Workers search with a window just below the best score found so far,
+ * so equal scores stay exact and the first best move in root order is chosen, exactly as in the
+ * sequential search.
+ *
+ * Every search and every depth of it is a JDK Flight Recorder event (see SearchEvents).
+ */
+
+public class AlphaBetaSearch {
+
+	static final int WIN = 1000000;
+
+	// scores beyond this are won or lost positions, WIN minus the ply of the end
+	private static final int WIN_BOUND = WIN - 1000;
+
+	// distinguishes positions where the opponent is to move
+	private static final long OPPONENT_TO_MOVE = 0x5DEECE66DL * 0x9E3779B97F4A7C15L;
+
+	// how often (in nodes) the clock is checked
+	private static final int CHECK_INTERVAL = 1024;
+
+	public long timeLimitMillis = Long.getLong("search.timeLimit", 700);
+	public int maxDepth = Integer.getInteger("search.maxDepth", 32);
+
+	/** Only consider enemy planets as destinations at the root (JorroZorRoBot's behaviour). */
+	public boolean rootEnemyTargetsOnly = false;
+
+	/** Optional, shared between turns; null disables transposition lookups. */
+	public TranspositionTable table;
+
+	/** Scores the positions at the search horizon. */
+	public Evaluator evaluator = Evaluator.SHIPS_AND_GROWTH;
+
+	/** Lists the moves of every node best-first, optionally capped in width. */
+	public final MoveGenerator generator = new MoveGenerator();
+
+	/** Number of threads searching the root moves in parallel; 1 searches sequentially. */
+	public int threads = SearchThreads.THREADS;
+
+	/** Print a one-line summary of every search to System.err (system property search.verbose). */
+	public boolean verbose = Boolean.getBoolean("search.verbose");
+
+	/**
+	 * Set from another thread to end a search early, as if its time had run out (see Ponder).
+	 * A search doesn't reset it; the caller clears it before searching again.
+	 */
+	public volatile boolean stopped;
+
+	public int bestSource = -1;
+	public int bestDest = -1;
+	public int bestScore;
+	public int depthReached;
+	public long nodes;
+	/** Positions scored by the evaluator in the last search. */
+	public long evaluations;
+
+	private SimulationState state;
+	private long deadline;
+	private boolean aborted;
+
+	// time spent in evaluate(), only measured while the JFR search event is recorded
+	private boolean timing;
+	private long evaluationNanos;
+
+	private AlphaBetaSearch[] workers;
+	private int iterationScore;
+
+	/**
+	 * Searches the given position until the time limit or maximum depth is reached.
+	 * @param The position to search, it is restored before returning
+	 * @return true if a move for player 1 was found
+	 */
+	public boolean search(SimulationState root) {
+		SearchEvents.Search event = new SearchEvents.Search();
+		event.begin();
+		timing = event.isEnabled();
+		evaluationNanos = 0;
+		boolean found = iterativeDeepening(root);
+		if (event.shouldCommit()) {
+			event.depth = depthReached;
+			event.nodes = nodes;
+			event.threads = threads;
+			event.evaluationTime = evaluationNanos;
+			event.aborted = aborted;
+			event.source = bestSource;
+			event.dest = bestDest;
+			event.score = bestScore;
+			if (table != null) {
+				event.ttProbes = table.probes;
+				event.ttHits = table.hits;
+				event.ttCutoffs = table.cutoffs;
+			}
+			if (threads > 1 && workers != null) {
+				for (AlphaBetaSearch worker : workers) {
+					if (worker.table != null) {
+						event.ttProbes += worker.table.probes;
+						event.ttHits += worker.table.hits;
+						event.ttCutoffs += worker.table.cutoffs;
+					}
+				}
+			}
+			event.commit();
+		}
+		return found;
+	}
+
+	private boolean iterativeDeepening(SimulationState root) {
+		state = root;
+		deadline = System.nanoTime() + timeLimitMillis * 1000000L;
+		aborted = false;
+		nodes = 0;
+		evaluations = 0;
+		depthReached = 0;
+		bestSource = -1;
+		bestDest = -1;
+		if (table != null) {
+			table.newSearch();
+		}
+		if (threads > 1) {
+			startWorkers(root);
+		}
+
+		int count = generator.generate(root, 1, rootEnemyTargetsOnly, 0);
+		generator.sort(0, count);
+		int[] rootMoves = Arrays.copyOf(generator.moves(0), 2 * count);
+		if (count == 0) {
+			return false;
+		}
+
+		for (int depth = 1; depth <= maxDepth; depth++) {
+			SearchEvents.Iteration iteration = new SearchEvents.Iteration();
+			iteration.begin();
+			long nodesBefore = nodes;
+			int iterationBest = threads > 1
+					? parallelIteration(rootMoves, count, depth)
+					: sequentialIteration(rootMoves, count, depth);
+			int alpha = iterationScore;
+			if (iteration.shouldCommit()) {
+				iteration.depth = depth;
+				iteration.nodes = nodes - nodesBefore;
+				iteration.completed = !aborted;
+				if (iterationBest >= 0) {
+					iteration.source = rootMoves[2 * iterationBest];
+					iteration.dest = rootMoves[2 * iterationBest + 1];
+					iteration.score = alpha;
+				}
+				iteration.commit();
+			}
+			if (aborted) {
+				// keep the partial result only if no depth has been completed yet
+				if (depthReached == 0 && iterationBest >= 0) {
+					bestSource = rootMoves[2 * iterationBest];
+					bestDest = rootMoves[2 * iterationBest + 1];
+					bestScore = alpha;
+				}
+				break;
+			}
+			bestSource = rootMoves[2 * iterationBest];
+			bestDest = rootMoves[2 * iterationBest + 1];
+			bestScore = alpha;
+			depthReached = depth;
+			if (alpha >= WIN - maxDepth || alpha <= -WIN + maxDepth) {
+				// the game is decided within the horizon, deeper searches won't change that
+				break;
+			}
+			// search the previous best move first in the next iteration
+			moveToFront(rootMoves, iterationBest);
+		}
+		return bestSource >= 0;
+	}
+
+	/**
+	 * Searches all root moves to the given depth.
+	 * @return index of the best move (first one in root order on ties), -1 if none was completed
+	 */
+	private int sequentialIteration(int[] rootMoves, int count, int depth) {
+		int alpha = -WIN - 1;
+		int iterationBest = -1;
+		for (int i = 0; i < count; i++) {
+			int value = searchRootMove(rootMoves[2 * i], rootMoves[2 * i + 1], depth, alpha);
+			if (aborted) {
+				break;
+			}
+			if (value > alpha) {
+				alpha = value;
+				iterationBest = i;
+			}
+		}
+		iterationScore = alpha;
+		return iterationBest;
+	}
+
+	private int parallelIteration(final int[] rootMoves, final int count, final int depth) {
+		final int[] values = new int[count];
+		final boolean[] done = new boolean[count];
+		final AtomicInteger next = new AtomicInteger();
+		final AtomicInteger sharedAlpha = new AtomicInteger(-WIN - 1);
+
+		List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+		for (final AlphaBetaSearch worker : workers) {
+			tasks.add(new Callable<Void>() {
+				public Void call() {
+					int i;
+					while ((i = next.getAndIncrement()) < count) {
+						// one below the best score so far, so a move scoring the same is still exact
+						int alpha = sharedAlpha.get() - 1;
+						int value = worker.searchRootMove(rootMoves[2 * i], rootMoves[2 * i + 1], depth, alpha);
+						if (worker.aborted) {
+							return null;
+						}
+						values[i] = value;
+						done[i] = true;
+						int current;
+						while (value > (current = sharedAlpha.get()) && !sharedAlpha.compareAndSet(current, value))
+							;
+					}
+					return null;
+				}
+			});
+		}
+		SearchThreads.invokeAll(tasks);
+
+		for (AlphaBetaSearch worker : workers) {
+			nodes += worker.nodes;
+			worker.nodes = 0;
+			evaluations += worker.evaluations;
+			worker.evaluations = 0;
+			evaluationNanos += worker.evaluationNanos;
+			worker.evaluationNanos = 0;
+			aborted |= worker.aborted;
+		}
+		int alpha = -WIN - 1;
+		int iterationBest = -1;
+		for (int i = 0; i < count; i++) {
+			if (done[i] && values[i] > alpha) {
+				alpha = values[i];
+				iterationBest = i;
+			}
+		}
+		iterationScore = alpha;
+		return iterationBest;
+	}
+
+	private void startWorkers(SimulationState root) {
+		if (workers == null || workers.length != threads) {
+			workers = new AlphaBetaSearch[threads];
+			for (int i = 0; i < threads; i++) {
+				workers[i] = createWorker();
+				workers[i].generator.configure(generator);
+				if (table != null) {
+					workers[i].table = new TranspositionTable(Math.max(1, table.megabytes / threads));
+				}
+			}
+		}
+		for (AlphaBetaSearch worker : workers) {
+			worker.state = root.copy();
+			worker.evaluator = evaluator;
+			worker.deadline = deadline;
+			worker.aborted = false;
+			worker.nodes = 0;
+			worker.evaluations = 0;
+			worker.timing = timing;
+			worker.evaluationNanos = 0;
+			if (worker.table != null) {
+				worker.table.newSearch();
+			}
+		}
+	}
+
+	/**
+	 * Creates a search used as a parallel worker (and by Ponder). Subclasses should return an
+	 * instance of themselves.
+	 */
+	protected AlphaBetaSearch createWorker() {
+		return new AlphaBetaSearch();
+	}
+
+	private int searchRootMove(int source, int dest, int depth, int alpha) {
+		int mark = state.mark();
+		state.simulateAttack(1, source, dest);
+		state.simulateGrowth();
+		int value = minValue(depth, 1, alpha, WIN + 1);
+		state.undo(mark);
+		return value;
+	}
+
+	private int maxValue(int depth, int ply, int alpha, int beta) {
+		if (tick()) {
+			return 0;
+		}
+		int terminal = terminalValue(ply);
+		if (terminal != 0) {
+			return terminal;
+		}
+		if (depth == 0) {
+			evaluations++;
+			if (timing) {
+				long start = System.nanoTime();
+				int value = evaluate(state);
+				evaluationNanos += System.nanoTime() - start;
+				return value;
+			}
+			return evaluate(state);
+		}
+		int level = 2 * ply;
+		int count = generator.generate(state, 1, false, level);
+		int[] moves = generator.moves(level);
+		if (count == 0) {
+			state.simulateGrowth();
+			int value = minValue(depth, ply, alpha, beta);
+			state.unmake();
+			return value;
+		}
+
+		long key = state.hash();
+		if (table != null) {
+			int slot = table.probe(key);
+			if (slot >= 0) {
+				if (isCutoff(slot, depth, ply, alpha, beta)) {
+					return fromTable(table.score(slot), ply);
+				}
+				generator.moveToFront(level, count, table.source(slot), table.dest(slot));
+			}
+		}
+
+		int alphaOrig = alpha;
+		int best = 0;
+		for (int i = 0; i < 2 * count; i += 2) {
+			generator.select(level, i / 2, count);
+			int mark = state.mark();
+			state.simulateAttack(1, moves[i], moves[i + 1]);
+			state.simulateGrowth();
+			int value = minValue(depth, ply, alpha, beta);
+			state.undo(mark);
+			if (aborted) {
+				return 0;
+			}
+			if (value > alpha) {
+				alpha = value;
+				best = i;
+				if (alpha >= beta) {
+					break;
+				}
+			}
+		}
+		if (table != null) {
+			int flag = alpha >= beta ? TranspositionTable.LOWER
+					: alpha > alphaOrig ? TranspositionTable.EXACT : TranspositionTable.UPPER;
+			table.store(key, depth, flag, toTable(alpha, ply), moves[best], moves[best + 1]);
+		}
+		return alpha;
+	}
+
+	private int minValue(int depth, int ply, int alpha, int beta) {
+		if (tick()) {
+			return 0;
+		}
+		int level = 2 * ply + 1;
+		int count = generator.generate(state, 2, false, level);
+		int[] moves = generator.moves(level);
+		if (count == 0) {
+			state.simulateGrowth();
+			int value = maxValue(depth - 1, ply + 1, alpha, beta);
+			state.unmake();
+			return value;
+		}
+
+		long key = state.hash() ^ OPPONENT_TO_MOVE;
+		if (table != null) {
+			int slot = table.probe(key);
+			if (slot >= 0) {
+				if (isCutoff(slot, depth, ply, alpha, beta)) {
+					return fromTable(table.score(slot), ply);
+				}
+				generator.moveToFront(level, count, table.source(slot), table.dest(slot));
+			}
+		}
+
+		int betaOrig = beta;
+		int best = 0;
+		for (int i = 0; i < 2 * count; i += 2) {
+			generator.select(level, i / 2, count);
+			int mark = state.mark();
+			state.simulateAttack(state.Owner(moves[i]), moves[i], moves[i + 1]);
+			state.simulateGrowth();
+			int value = maxValue(depth - 1, ply + 1, alpha, beta);
+			state.undo(mark);
+			if (aborted) {
+				return 0;
+			}
+			if (value < beta) {
+				beta = value;
+				best = i;
+				if (alpha >= beta) {
+					break;
+				}
+			}
+		}
+		if (table != null) {
+			int flag = alpha >= beta ? TranspositionTable.UPPER
+					: beta < betaOrig ? TranspositionTable.EXACT : TranspositionTable.LOWER;
+			table.store(key, depth, flag, toTable(beta, ply), moves[best], moves[best + 1]);
+		}
+		return beta;
+	}
+
+	/**
+	 * Whether a stored entry settles the node. Only entries searched to exactly the same depth are
+	 * used, so a position's value never depends on which path reached it first.
+	 */
+	private boolean isCutoff(int slot, int depth, int ply, int alpha, int beta) {
+		if (table.depth(slot) != depth) {
+			return false;
+		}
+		int score = fromTable(table.score(slot), ply);
+		switch (table.flag(slot)) {
+		case TranspositionTable.EXACT:
+			break;
+		case TranspositionTable.LOWER:
+			if (score < beta)
+				return false;
+			break;
+		default:
+			if (score > alpha)
+				return false;
+			break;
+		}
+		table.cutoffs++;
+		return true;
+	}
+
+	/**
+	 * The opponent's expected answer to the best move of the last search: its best reply stored
+	 * in the transposition table or, if the table doesn't have it, its first move in the
+	 * generator's order.
+	 * @param reply receives the source and destination of the reply
+	 * @return false if there is no best move or the opponent has no move
+	 */
+	public boolean expectedReply(int[] reply) {
+		if (bestSource < 0) {
+			return false;
+		}
+		int mark = state.mark();
+		state.simulateAttack(1, bestSource, bestDest);
+		state.simulateGrowth();
+		boolean found = false;
+		if (table != null) {
+			int slot = table.probe(state.hash() ^ OPPONENT_TO_MOVE);
+			if (slot >= 0 && state.Owner(table.source(slot)) >= 2) {
+				reply[0] = table.source(slot);
+				reply[1] = table.dest(slot);
+				found = true;
+			}
+		}
+		if (!found) {
+			int count = generator.generate(state, 2, false, 0);
+			if (count > 0) {
+				generator.select(0, 0, count);
+				reply[0] = generator.moves(0)[0];
+				reply[1] = generator.moves(0)[1];
+				found = true;
+			}
+		}
+		state.undo(mark);
+		return found;
+	}
+
+	public String report() {
+		String line = String.format("depth %d, %d nodes, move %d -> %d, score %d",
+				depthReached, nodes, bestSource, bestDest, bestScore);
+		if (table != null) {
+			line += ", " + table.report();
+		}
+		return line;
+	}
+
+	/**
+	 * The evaluator's score of the position.
+	 */
+	protected int evaluate(SimulationState state) {
+		return evaluator.evaluate(state);
+	}
+
+	/**
+	 * Returns +/-WIN (corrected by ply, so faster wins score higher) if one side has no planets left,
+	 * 0 otherwise.
+	 */
+	private int terminalValue(int ply) {
+		if (state.numEnemy() == 0) {
+			return WIN - ply;
+		}
+		if (state.numMine() == 0) {
+			return -WIN + ply;
+		}
+		return 0;
+	}
+
+	/**
+	 * A score as the table stores it: wins and losses counted from the node instead of the root,
+	 * so the entry holds for the position whatever ply it is reached at.
+	 */
+	private static int toTable(int score, int ply) {
+		return score >= WIN_BOUND ? score + ply : score <= -WIN_BOUND ? score - ply : score;
+	}
+
+	/**
+	 * A score of the table at the given ply, see toTable.
+	 */
+	private static int fromTable(int score, int ply) {
+		return score >= WIN_BOUND ? score - ply : score <= -WIN_BOUND ? score + ply : score;
+	}
+
+	private static void moveToFront(int[] moves, int index) {
+		int source = moves[2 * index];
+		int dest = moves[2 * index + 1];
+		System.arraycopy(moves, 0, moves, 2, 2 * index);
+		moves[0] = source;
+		moves[1] = dest;
+	}
+
+	private boolean tick() {
+		if (aborted) {
+			return true;
+		}
+		if ((++nodes % CHECK_INTERVAL) == 0 && (stopped || System.nanoTime() > deadline)) {
+			aborted = true;
+		}
+		return aborted;
+	}
+}
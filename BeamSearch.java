@@ -0,0 +1,311 @@
+import java.util.*;
+import java.util.concurrent.*;
+
+/** Fixed-cost lookahead: beam search over the bots' simulated plies.
+ * A ply is the move model of the bots' simulations: we attack from one of our planets to a planet
+ * that is not ours, ships grow, the opponent replies as its OpponentModel picks, and ships grow
+ * again. Starting from the root, every position in the beam is expanded with all of our orders
+ * (MoveGenerator, so its width and nearestTargets caps apply), the new positions are ranked by
+ * the evaluator, ties by the attack heuristic of the order, and only the best beamWidth of them
+ * are kept for the next ply. Positions that
+ * were reached twice (the same attacks in another order) only take one place in the beam, and
+ * won or lost positions are kept as they are instead of being expanded.
+ *
+ * After depth plies the best position of the beam is traced back through its parents to the
+ * order played at the root, so the cost of a turn is about depth * beamWidth * orders simulated
+ * plies whatever the position, between the greedy one-ply search (beamWidth 1) and the full tree.
+ * Depth and width default to the system properties search.beamDepth and search.beamWidth.
+ * The time limit (search.timeLimit) is only a safety net: when it runs out, the best position of
+ * the last completed ply is used.
+ *
+ * With more than one thread (system property search.threads) the beam of every ply is split into
+ * one contiguous range per thread, each expanded on its own copy of the root. The new positions
+ * are merged in beam order and ranked with a stable sort, so the result is the same as
+ * sequentially.
+ *
+ * In a game with more than two players every opponent replies in every ply (OpponentReplies).
+ *
+ * Select it with the system property search.mode=beam (or <bot>.search.mode).
+ */
+
+public class BeamSearch {
+
+	public long timeLimitMillis = Long.getLong("search.timeLimit", 700);
+
+	/** Number of plies searched (system property search.beamDepth). */
+	public int depth = Integer.getInteger("search.beamDepth", 3);
+
+	/** Number of positions kept after every ply (system property search.beamWidth). */
+	public int beamWidth = Integer.getInteger("search.beamWidth", 8);
+
+	/** Ranks the positions of every ply. */
+	public Evaluator evaluator = Evaluator.SHIPS_AND_GROWTH;
+
+	/** Picks the opponents' replies in every ply. */
+	public OpponentModel opponent = new OpponentModel.Minimizing(Evaluator.SHIPS_AND_GROWTH);
+
+	/** Lists our orders, optionally capped in width. */
+	public final MoveGenerator generator = new MoveGenerator();
+
+	/** Only consider enemy planets as destinations at the root (JorroZorRoBot's behaviour). */
+	public boolean rootEnemyTargetsOnly = false;
+
+	/** Number of threads expanding the beam in parallel; 1 expands it sequentially. */
+	public int threads = SearchThreads.THREADS;
+
+	/** Print a one-line summary of every search to System.err (system property search.verbose). */
+	public boolean verbose = Boolean.getBoolean("search.verbose");
+
+	public int bestSource = -1;
+	public int bestDest = -1;
+	public int bestScore;
+	/** Number of plies completed by the last search. */
+	public int depthReached;
+	/** Number of positions ranked by the last search. */
+	public long nodes;
+
+	private long deadline;
+	private volatile boolean aborted;
+
+	/**
+	 * A position of the beam: its parent and the ply that leads from there to here. The root has
+	 * no parent.
+	 */
+	static final class Node {
+		final Node parent;
+		final int source;
+		final int dest;
+		// player, source and dest of every reply
+		final int[] replies;
+		final int score;
+		final long hash;
+		final boolean terminal;
+
+		Node(Node parent, int source, int dest, int[] replies, int score, long hash, boolean terminal) {
+			this.parent = parent;
+			this.source = source;
+			this.dest = dest;
+			this.replies = replies;
+			this.score = score;
+			this.hash = hash;
+			this.terminal = terminal;
+		}
+	}
+
+	private static final int[] NO_REPLIES = new int[0];
+
+	private static final Comparator<Node> BEST_FIRST = new Comparator<Node>() {
+		public int compare(Node a, Node b) {
+			return a.score > b.score ? -1 : a.score < b.score ? 1 : 0;
+		}
+	};
+
+	/**
+	 * True if the given bot should search with BeamSearch.
+	 */
+	public static boolean isSelected(String bot) {
+		return "beam".equals(System.getProperty(bot + ".search.mode", System.getProperty("search.mode", "alphabeta")));
+	}
+
+	/**
+	 * Searches the given position depth plies deep.
+	 * @param The position to search, it is restored before returning
+	 * @return true if an order for player 1 was found
+	 */
+	public boolean search(SimulationState root) {
+		SearchEvents.Search event = new SearchEvents.Search();
+		event.begin();
+		deadline = System.nanoTime() + timeLimitMillis * 1000000L;
+		aborted = false;
+		nodes = 0;
+		depthReached = 0;
+		bestSource = -1;
+		bestDest = -1;
+		bestScore = 0;
+
+		int workers = Math.max(1, threads);
+		SimulationState[] states = new SimulationState[workers];
+		MoveGenerator[] generators = new MoveGenerator[workers];
+		states[0] = root;
+		generators[0] = generator;
+		for (int i = 1; i < workers; i++) {
+			states[i] = root.copy();
+			generators[i] = new MoveGenerator();
+			generators[i].configure(generator);
+		}
+
+		List<Node> beam = new ArrayList<Node>();
+		beam.add(new Node(null, -1, -1, NO_REPLIES, evaluator.evaluate(root), root.hash(), false));
+		for (int ply = 0; ply < depth; ply++) {
+			List<Node> children = expand(beam, ply, states, generators);
+			if (aborted || children.isEmpty()) {
+				break;
+			}
+			nodes += children.size();
+			beam = select(children);
+			depthReached = ply + 1;
+		}
+
+		if (depthReached > 0) {
+			Node best = beam.get(0);
+			bestScore = best.score;
+			while (best.parent.parent != null) {
+				best = best.parent;
+			}
+			bestSource = best.source;
+			bestDest = best.dest;
+		}
+
+		if (event.shouldCommit()) {
+			event.depth = depthReached;
+			event.nodes = nodes;
+			event.threads = threads;
+			event.aborted = aborted;
+			event.source = bestSource;
+			event.dest = bestDest;
+			event.score = bestScore;
+			event.commit();
+		}
+		return bestSource >= 0;
+	}
+
+	/**
+	 * The children of every position in the beam, in beam order.
+	 */
+	private List<Node> expand(final List<Node> beam, final int ply, SimulationState[] states, MoveGenerator[] generators) {
+		int workers = Math.min(states.length, beam.size());
+		if (workers <= 1) {
+			List<Node> children = new ArrayList<Node>();
+			expand(states[0], generators[0], beam, 0, beam.size(), ply, children);
+			return children;
+		}
+		List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+		List<List<Node>> results = new ArrayList<List<Node>>();
+		int chunk = (beam.size() + workers - 1) / workers;
+		for (int i = 0, from = 0; from < beam.size(); i++, from += chunk) {
+			final SimulationState state = states[i];
+			final MoveGenerator moves = generators[i];
+			final int start = from;
+			final int end = Math.min(beam.size(), from + chunk);
+			final List<Node> children = new ArrayList<Node>();
+			results.add(children);
+			tasks.add(new Callable<Void>() {
+				public Void call() {
+					expand(state, moves, beam, start, end, ply, children);
+					return null;
+				}
+			});
+		}
+		SearchThreads.invokeAll(tasks);
+		List<Node> children = new ArrayList<Node>();
+		for (List<Node> result : results) {
+			children.addAll(result);
+		}
+		return children;
+	}
+
+	/**
+	 * Adds the children of the positions beam[from..to) to children. state is the root and is
+	 * restored after every position.
+	 */
+	private void expand(SimulationState state, MoveGenerator moves, List<Node> beam, int from, int to, int ply, List<Node> children) {
+		OpponentReplies replies = new OpponentReplies(opponent);
+		// the first ply always completes, so there is a move to play
+		boolean timed = ply > 0;
+		for (int i = from; i < to; i++) {
+			if (timed && (aborted || System.nanoTime() > deadline)) {
+				aborted = true;
+				return;
+			}
+			Node parent = beam.get(i);
+			if (parent.terminal) {
+				children.add(parent);
+				continue;
+			}
+			int mark = state.mark();
+			replay(state, parent);
+			int level = ply == 0 ? 0 : 1;
+			int count = moves.generate(state, 1, ply == 0 && rootEnemyTargetsOnly, level);
+			// best-first, so equal scores are ranked by the attack heuristic as in the alpha-beta search
+			moves.sort(level, count);
+			int[] orders = moves.moves(level);
+			if (count == 0) {
+				// no orders: we pass
+				children.add(child(state, parent, -1, -1, ply, replies));
+			}
+			for (int j = 0; j < count; j++) {
+				children.add(child(state, parent, orders[2 * j], orders[2 * j + 1], ply, replies));
+			}
+			state.undo(mark);
+		}
+	}
+
+	/**
+	 * Plays one ply from the parent's position (our order, growth, the opponents' replies, growth)
+	 * and returns the new position, leaving state unchanged.
+	 */
+	private Node child(SimulationState state, Node parent, int source, int dest, int ply, OpponentReplies replies) {
+		int mark = state.mark();
+		if (source >= 0) {
+			state.simulateAttack(1, source, dest);
+		}
+		state.simulateGrowth();
+		int[] orders = replies.choose(state) == 0 ? NO_REPLIES : replies.orders();
+		replies.play(state);
+		state.simulateGrowth();
+		int score;
+		boolean terminal = true;
+		if (state.numEnemy() == 0) {
+			score = AlphaBetaSearch.WIN - ply;
+		} else if (state.numMine() == 0) {
+			score = -AlphaBetaSearch.WIN + ply;
+		} else {
+			score = evaluator.evaluate(state);
+			terminal = false;
+		}
+		Node node = new Node(parent, source, dest, orders, score, state.hash(), terminal);
+		state.undo(mark);
+		return node;
+	}
+
+	/**
+	 * Plays the plies from the root to the node on state.
+	 */
+	private static void replay(SimulationState state, Node node) {
+		if (node.parent == null) {
+			return;
+		}
+		replay(state, node.parent);
+		if (node.source >= 0) {
+			state.simulateAttack(1, node.source, node.dest);
+		}
+		state.simulateGrowth();
+		for (int i = 0; i < node.replies.length; i += 3) {
+			state.simulateAttack(node.replies[i], node.replies[i + 1], node.replies[i + 2]);
+		}
+		state.simulateGrowth();
+	}
+
+	/**
+	 * The best beamWidth positions of the children, best first, each position only once.
+	 */
+	private List<Node> select(List<Node> children) {
+		Collections.sort(children, BEST_FIRST);
+		List<Node> beam = new ArrayList<Node>(beamWidth);
+		Set<Long> seen = new HashSet<Long>();
+		for (Node child : children) {
+			if (beam.size() >= Math.max(1, beamWidth)) {
+				break;
+			}
+			if (seen.add(child.hash)) {
+				beam.add(child);
+			}
+		}
+		return beam;
+	}
+
+	public String report() {
+		return String.format("beam depth %d of %d, width %d, %d nodes%s, move %d -> %d, score %d", depthReached, depth,
+				beamWidth, nodes, aborted ? " (timed out)" : "", bestSource, bestDest, bestScore);
+	}
+}
@@ -0,0 +1,340 @@
+import java.io.*;
+import java.lang.management.*;
+import java.util.*;
+
+/** Benchmarks for the bots' DoTurn and the simulation primitives.
+ * Every case runs on each game state of a fixed corpus (bench/states: small, medium and large
+ * maps, early and late game) and reports the time per call, the work done per second (search
+ * nodes for the alpha-beta bots, simulated candidates for InceptionBot, calls for the primitives)
+ * and the bytes allocated per call by the benchmark thread.
+ *
+ * Each case gets warm-up iterations before the measured ones, in the way JMH does it. DoTurn is
+ * timed call by call, so the per-turn latency percentiles are reported as well. The alpha-beta
+ * bots search to a fixed depth (bench.depth) without a time limit, and their transposition table
+ * is cleared before every call, so each measured turn does the same work.
+ *
+ * Usage: java Benchmark [corpus directory] [case filter]
+ * System properties: bench.warmup (iterations, default 3), bench.iterations (default 5),
+ * bench.iterationMillis (default 1000), bench.depth (default 2).
+ */
+
+public class Benchmark {
+
+	static final int WARMUP = Integer.getInteger("bench.warmup", 3);
+	static final int ITERATIONS = Integer.getInteger("bench.iterations", 5);
+	static final long ITERATION_NANOS = Long.getLong("bench.iterationMillis", 1000) * 1000000L;
+	static final int DEPTH = Integer.getInteger("bench.depth", 2);
+
+	/**
+	 * One benchmarked operation. setUp is called once per game state, prepare before every
+	 * call (untimed), and run performs the call and returns the work it did.
+	 */
+	static abstract class Case {
+		final String name;
+		// time every call on its own (DoTurn) or batches of calls (primitives)
+		final boolean perCall;
+
+		Case(String name, boolean perCall) {
+			this.name = name;
+			this.perCall = perCall;
+		}
+
+		void setUp(PlanetWars pw) {
+		}
+
+		void prepare() {
+		}
+
+		abstract long run();
+	}
+
+	static Case[] cases() {
+		return new Case[] {
+			new Case("JorroZorRoBot.DoTurn", true) {
+				PlanetWars pw;
+				void setUp(PlanetWars pw) {
+					this.pw = pw;
+					fixedDepth(JorroZorRoBot.driver.search);
+				}
+				void prepare() {
+					JorroZorRoBot.driver.table.clear();
+				}
+				long run() {
+					JorroZorRoBot.DoTurn(pw);
+					return JorroZorRoBot.driver.search.nodes;
+				}
+			},
+			new Case("InceptionBot.DoTurn", true) {
+				PlanetWars pw;
+				long candidates;
+				void setUp(PlanetWars pw) {
+					this.pw = pw;
+					candidates = 0;
+					for (Planet p : pw.MyPlanets()) {
+						if (p.NumShips() > 1) {
+							candidates += pw.NotMyPlanets().size();
+						}
+					}
+				}
+				long run() {
+					InceptionBot.DoTurn(pw);
+					return candidates;
+				}
+			},
+			new Case("InceptionBot31.DoTurn", true) {
+				PlanetWars pw;
+				void setUp(PlanetWars pw) {
+					this.pw = pw;
+					fixedDepth(InceptionBot31.driver.search);
+				}
+				void prepare() {
+					InceptionBot31.driver.table.clear();
+				}
+				long run() {
+					InceptionBot31.DoTurn(pw);
+					return InceptionBot31.driver.search.nodes;
+				}
+			},
+			new Case("createSimulation", false) {
+				PlanetWars pw;
+				void setUp(PlanetWars pw) {
+					this.pw = pw;
+				}
+				long run() {
+					sink += InceptionBot.createSimulation(pw).state.NumPlanets();
+					return 1;
+				}
+			},
+			new Case("SimulationState.copy", false) {
+				SimulationState state;
+				void setUp(PlanetWars pw) {
+					state = new SimulationState(pw);
+				}
+				long run() {
+					sink += state.copy().NumPlanets();
+					return 1;
+				}
+			},
+			new Case("simulateGrowth+undo", false) {
+				SimulatedPlanetWars simpw;
+				void setUp(PlanetWars pw) {
+					simpw = InceptionBot.createSimulation(pw);
+				}
+				long run() {
+					int mark = simpw.mark();
+					simpw.simulateGrowth();
+					simpw.undo(mark);
+					return 1;
+				}
+			},
+			new Case("simulateAttack+undo", false) {
+				SimulatedPlanetWars simpw;
+				Planet[] sources;
+				Planet[] dests;
+				int next;
+				void setUp(PlanetWars pw) {
+					simpw = InceptionBot.createSimulation(pw);
+					List<Planet> mine = pw.MyPlanets();
+					List<Planet> notMine = pw.NotMyPlanets();
+					sources = new Planet[mine.size() * notMine.size()];
+					dests = new Planet[sources.length];
+					int k = 0;
+					for (Planet source : mine) {
+						for (Planet dest : notMine) {
+							sources[k] = source;
+							dests[k++] = dest;
+						}
+					}
+					next = 0;
+				}
+				long run() {
+					if (sources.length == 0) {
+						return 1;
+					}
+					int mark = simpw.mark();
+					simpw.simulateAttack(1, sources[next], dests[next]);
+					simpw.undo(mark);
+					next = next + 1 == sources.length ? 0 : next + 1;
+					return 1;
+				}
+			},
+			new Case("FleetSimulation.advance(30)", false) {
+				FleetSimulation simulation;
+				void setUp(PlanetWars pw) {
+					simulation = new FleetSimulation(pw);
+				}
+				long run() {
+					FleetSimulation copy = simulation.copy();
+					copy.advance(30);
+					sink += copy.NumShips(1, true);
+					return 1;
+				}
+			},
+		};
+	}
+
+	// keeps results alive so the JIT can't drop the benchmarked calls
+	static long sink;
+
+	static void fixedDepth(AlphaBetaSearch search) {
+		search.maxDepth = DEPTH;
+		search.timeLimitMillis = 3600 * 1000L;
+		search.verbose = false;
+	}
+
+	public static void main(String[] args) throws IOException {
+		File corpus = new File(args.length > 0 ? args[0] : "bench/states");
+		String filter = args.length > 1 ? args[1] : "";
+		File[] files = corpus.listFiles();
+		if (files == null) {
+			System.err.println("no game states in " + corpus);
+			return;
+		}
+		Arrays.sort(files);
+
+		// the bots print their orders and debug output, which is not what we measure
+		PrintStream out = System.out;
+		PrintStream devNull = new PrintStream(new OutputStream() {
+			public void write(int b) {
+			}
+			public void write(byte[] b, int off, int len) {
+			}
+		});
+		System.setOut(devNull);
+		System.setErr(devNull);
+
+		out.println(String.format("%-28s %-18s %12s %12s %12s %14s %12s",
+				"case", "state", "mean ns/op", "p50 ns", "p99 ns", "work/s", "B/op"));
+		for (Case c : cases()) {
+			if (!c.name.contains(filter)) {
+				continue;
+			}
+			for (File file : files) {
+				PlanetWars pw = new PlanetWars(read(file));
+				c.setUp(pw);
+				Result result = measure(c);
+				String name = file.getName().replace(".txt", "");
+				out.println(String.format("%-28s %-18s %12.0f %12s %12s %14.0f %12d",
+						c.name, name, result.meanNanos,
+						c.perCall ? String.format("%.0f", result.percentile(50)) : "-",
+						c.perCall ? String.format("%.0f", result.percentile(99)) : "-",
+						result.workPerSecond(), result.bytesPerCall()));
+			}
+		}
+		out.println("sink " + sink);
+	}
+
+	static class Result {
+		long calls;
+		long work;
+		long nanos;
+		long bytes;
+		double meanNanos;
+		long[] samples = new long[256];
+		int numSamples;
+
+		void sample(long nanos) {
+			if (numSamples == samples.length) {
+				samples = Arrays.copyOf(samples, 2 * numSamples);
+			}
+			samples[numSamples++] = nanos;
+		}
+
+		double percentile(int p) {
+			if (numSamples == 0) {
+				return 0.;
+			}
+			long[] sorted = Arrays.copyOf(samples, numSamples);
+			Arrays.sort(sorted);
+			return sorted[Math.min(numSamples - 1, numSamples * p / 100)];
+		}
+
+		double workPerSecond() {
+			return nanos == 0 ? 0. : work * 1e9 / nanos;
+		}
+
+		long bytesPerCall() {
+			return calls == 0 ? 0 : bytes / calls;
+		}
+	}
+
+	static Result measure(Case c) {
+		for (int i = 0; i < WARMUP; i++) {
+			iteration(c, null);
+		}
+		Result result = new Result();
+		for (int i = 0; i < ITERATIONS; i++) {
+			iteration(c, result);
+		}
+		result.meanNanos = result.calls == 0 ? 0. : (double) result.nanos / result.calls;
+		return result;
+	}
+
+	/**
+	 * Calls the case for ITERATION_NANOS and adds the timings to result (if not null).
+	 */
+	static void iteration(Case c, Result result) {
+		long end = System.nanoTime() + ITERATION_NANOS;
+		if (c.perCall) {
+			do {
+				c.prepare();
+				long bytes = allocatedBytes();
+				long start = System.nanoTime();
+				long work = c.run();
+				long nanos = System.nanoTime() - start;
+				bytes = allocatedBytes() - bytes;
+				if (result != null) {
+					result.calls++;
+					result.work += work;
+					result.nanos += nanos;
+					result.bytes += bytes;
+					result.sample(nanos);
+				}
+			} while (System.nanoTime() < end);
+		} else {
+			int batch = 1024;
+			do {
+				long bytes = allocatedBytes();
+				long start = System.nanoTime();
+				long work = 0;
+				for (int i = 0; i < batch; i++) {
+					work += c.run();
+				}
+				long nanos = System.nanoTime() - start;
+				bytes = allocatedBytes() - bytes;
+				if (result != null) {
+					result.calls += batch;
+					result.work += work;
+					result.nanos += nanos;
+					result.bytes += bytes;
+				}
+			} while (System.nanoTime() < end);
+		}
+	}
+
+	/**
+	 * Bytes allocated so far by the current thread, or 0 if the JVM can't tell. Allocations of
+	 * search worker threads (search.threads > 1) are not included.
+	 */
+	static long allocatedBytes() {
+		ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (bean instanceof com.sun.management.ThreadMXBean) {
+			return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+		}
+		return 0;
+	}
+
+	static String read(File file) throws IOException {
+		StringBuilder message = new StringBuilder();
+		BufferedReader reader = new BufferedReader(new FileReader(file));
+		try {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				message.append(line).append('\n');
+			}
+		} finally {
+			reader.close();
+		}
+		return message.toString();
+	}
+}
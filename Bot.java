@@ -0,0 +1,119 @@
+/** A bot as the in-process GameEngine plays it.
+ * Bot.of(name) returns the bots of this repository by class name: JorroZorRoBot, InceptionBot,
+ * InceptionBot31 and SimpleBot (the strategy of SimpleBot.txt). The alpha-beta bots take a
+ * search mode suffix, JorroZorRoBot:mcts, JorroZorRoBot:beam or JorroZorRoBot:alphabeta, so the
+ * searches can play each other in a Tournament; without a suffix they search in the mode of the
+ * system properties (see SearchDriver).
+ */
+
+public abstract class Bot {
+
+	public abstract void DoTurn(PlanetWars pw);
+
+	public static Bot of(String name) {
+		int colon = name.indexOf(':');
+		String mode = null;
+		if (colon >= 0) {
+			mode = name.substring(colon + 1);
+			if (!mode.equals("mcts") && !mode.equals("beam") && !mode.equals("alphabeta")) {
+				throw new IllegalArgumentException("unknown search mode " + mode);
+			}
+			name = name.substring(0, colon);
+		}
+		// the drivers are static, so a plain name resets the mode a suffixed one may have left
+		if (name.equals("JorroZorRoBot")) {
+			setMode(JorroZorRoBot.driver, name, mode);
+		} else if (name.equals("InceptionBot31")) {
+			setMode(InceptionBot31.driver, name, mode);
+		} else if (mode != null) {
+			throw new IllegalArgumentException(name + " has no search mode");
+		}
+		if (name.equals("JorroZorRoBot")) {
+			return new Bot() {
+				public void DoTurn(PlanetWars pw) {
+					JorroZorRoBot.DoTurn(pw);
+				}
+			};
+		} else if (name.equals("InceptionBot")) {
+			return new Bot() {
+				public void DoTurn(PlanetWars pw) {
+					InceptionBot.DoTurn(pw);
+				}
+			};
+		} else if (name.equals("InceptionBot31")) {
+			return new Bot() {
+				public void DoTurn(PlanetWars pw) {
+					InceptionBot31.DoTurn(pw);
+				}
+			};
+		} else if (name.equals("SimpleBot")) {
+			return SIMPLE_BOT;
+		}
+		throw new IllegalArgumentException("unknown bot " + name);
+	}
+
+	/**
+	 * Selects the driver's search: the given mode, or the one of the system properties
+	 * (search.mode, <bot>.search.mode) if null.
+	 */
+	private static void setMode(SearchDriver driver, String bot, String mode) {
+		if (mode == null) {
+			driver.monteCarlo = MonteCarloSearch.isSelected(bot);
+			driver.beam = BeamSearch.isSelected(bot);
+		} else {
+			driver.monteCarlo = mode.equals("mcts");
+			driver.beam = mode.equals("beam");
+		}
+	}
+
+	/**
+	 * Sets the tunable weights of a searching bot (see Tuner): the growth weight of its evaluation
+	 * (Evaluator.Weighted) and the growthFactor, zeroGrowthScore and distanceWeight of its move
+	 * ordering (MoveGenerator), in that order. The integer weights are rounded.
+	 */
+	public static void setWeights(String name, double[] weights) {
+		int colon = name.indexOf(':');
+		if (colon >= 0) {
+			name = name.substring(0, colon);
+		}
+		SearchDriver driver;
+		if (name.equals("JorroZorRoBot")) {
+			driver = JorroZorRoBot.driver;
+		} else if (name.equals("InceptionBot31")) {
+			driver = InceptionBot31.driver;
+		} else {
+			throw new IllegalArgumentException(name + " has no tunable weights");
+		}
+		driver.search.evaluator = new Evaluator.Weighted(weights[0]);
+		driver.beamSearch.evaluator = driver.search.evaluator;
+		driver.beamSearch.opponent = OpponentModel.of(name, driver.search.evaluator);
+		for (MoveGenerator generator : new MoveGenerator[] { driver.search.generator, driver.monteCarloSearch.generator, driver.beamSearch.generator }) {
+			generator.growthFactor = (int) Math.round(weights[1]);
+			generator.zeroGrowthScore = (int) Math.round(weights[2]);
+			generator.distanceWeight = (int) Math.round(weights[3]);
+		}
+	}
+
+	/**
+	 * Plays one turn of the named bot on gameState and returns its orders as source, dest pairs.
+	 * The Tournament calls this by reflection, so every bot can run in its own class loader.
+	 */
+	public static int[] turn(String name, String gameState) {
+		EnginePlanetWars pw = new EnginePlanetWars(gameState);
+		of(name).DoTurn(pw);
+		return pw.Orders();
+	}
+
+	/**
+	 * SimpleBot.txt: attacks the planet with the best growth versus ships trade-off,
+	 * preferring enemy planets and farther planets on ties (OpponentModel.SIMPLE_BOT).
+	 */
+	static final Bot SIMPLE_BOT = new Bot() {
+		public void DoTurn(PlanetWars pw) {
+			int[] move = new int[2];
+			if (OpponentModel.SIMPLE_BOT.move(new SimulationState(pw), 1, move)) {
+				pw.IssueOrder(pw.GetPlanet(move[0]), pw.GetPlanet(move[1]));
+			}
+		}
+	};
+}
@@ -0,0 +1,282 @@
+/** Exact win search for two-player endgames with few owned planets.
+ * Late in a game, when we and the opponent own at most maxPlanets planets together (system
+ * property search.endgamePlanets, 0 switches the solver off), SearchDriver first tries to prove
+ * a win. The move model is the one of the other searches: a side attacks from one of its planets
+ * with half its ships, ships grow, the other side replies and ships grow again; a side without
+ * planets has lost. Fleets in flight are left out, as everywhere in the searches.
+ *
+ * The search has no evaluation: a position is won or not within the remaining depth. At our moves
+ * one winning order is enough, and only attacks on the opponent's planets (and passing) are tried,
+ * as those are what ends the game. At the opponent's moves every reply must be refuted: every
+ * attack, on our planets first, then on the neutral ones, and passing. A win found this way holds
+ * against whatever the opponent does in the model, while the narrow choice of our orders keeps
+ * the tree small enough to go far deeper than the alpha-beta search in the same time. It deepens
+ * one ply at a time up to maxDepth (search.endgameDepth) until a win is found or its time
+ * (search.endgameTimeLimit, ms) runs out; a win is then played at once, the shortest one found.
+ * Otherwise the bot's search runs in the rest of the turn.
+ *
+ * The position is bit-packed: the planets of each side are a bitboard (so at most 64 planets),
+ * next to the ship counts. Growth only walks the owned planets, and the Zobrist-style hash is
+ * updated with every change. Results are kept in the solver's own hash table (2^tableBits entries,
+ * search.endgameTableBits) from turn to turn, as a proof doesn't depend on when it was found:
+ * a win within d plies answers every search of at least that depth, a position without a win
+ * within d plies every search of at most that depth.
+ */
+
+public class EndgameSolver {
+
+	/** Largest number of planets owned by both players together to solve (search.endgamePlanets). */
+	public int maxPlanets = Integer.getInteger("search.endgamePlanets", 6);
+
+	/** Deepest search in plies (search.endgameDepth), at most 31. */
+	public int maxDepth = Math.min(31, Integer.getInteger("search.endgameDepth", 12));
+
+	public long timeLimitMillis = Long.getLong("search.endgameTimeLimit", 100);
+
+	/** Print a one-line summary of every solve to System.err (system property search.verbose). */
+	public boolean verbose = Boolean.getBoolean("search.verbose");
+
+	public int bestSource = -1;
+	public int bestDest = -1;
+	/** True if a win was proven in the last position solved. */
+	public boolean won;
+	/** Number of plies completed by the last solve. */
+	public int depthReached;
+	public long nodes;
+
+	// distinguishes positions where the opponent is to move
+	private static final long OPPONENT_TO_MOVE = 0x2545F4914F6CDD1DL;
+
+	// how often (in nodes) the clock is checked
+	private static final int CHECK_INTERVAL = 1024;
+
+	private final int tableBits = Math.max(10, Math.min(26, Integer.getInteger("search.endgameTableBits", 18)));
+	private long[] keys;
+	// won (1 bit) | depth in half-plies (6) | source * 64 + dest + 1 (13)
+	private int[] data;
+
+	// the position: our planets, the opponent's, and the ships and growth of every planet
+	private long mine;
+	private long enemy;
+	private long all;
+	private int[] ships = new int[64];
+	private int[] growth = new int[64];
+	private long hash;
+
+	private long deadline;
+	private boolean aborted;
+
+	/**
+	 * True if the position is an endgame the solver takes on.
+	 */
+	public boolean applies(SimulationState state) {
+		return maxPlanets > 0 && state.numPlayers() == 2 && state.NumPlanets() <= 64 && state.numMine() > 0
+				&& state.numEnemy() > 0 && state.numMine() + state.numEnemy() <= maxPlanets;
+	}
+
+	/**
+	 * Tries to prove a win in the position, leaving it unchanged.
+	 * @return true if a win was proven, with the winning order for player 1 in bestSource, bestDest
+	 *         (-1 if the win is to pass)
+	 */
+	public boolean solve(SimulationState state) {
+		deadline = System.nanoTime() + timeLimitMillis * 1000000L;
+		aborted = false;
+		nodes = 0;
+		depthReached = 0;
+		won = false;
+		bestSource = -1;
+		bestDest = -1;
+		if (keys == null) {
+			keys = new long[1 << tableBits];
+			data = new int[1 << tableBits];
+		}
+
+		int n = state.NumPlanets();
+		all = n == 64 ? -1L : (1L << n) - 1;
+		mine = 0;
+		enemy = 0;
+		hash = 0;
+		for (int i = 0; i < n; i++) {
+			int owner = state.Owner(i);
+			if (owner == 1) {
+				mine |= 1L << i;
+			} else if (owner == 2) {
+				enemy |= 1L << i;
+			}
+			ships[i] = state.NumShips(i);
+			growth[i] = state.GrowthRate(i);
+			hash ^= key(i, owner, ships[i]);
+		}
+
+		for (int depth = 1; depth <= maxDepth && !won; depth++) {
+			boolean win = search(true, 2 * depth, true);
+			if (aborted) {
+				break;
+			}
+			depthReached = depth;
+			won = win;
+		}
+		if (!won) {
+			bestSource = -1;
+			bestDest = -1;
+		}
+		return won;
+	}
+
+	/**
+	 * Searches a win for player 1 within depth half-plies, with the given side to move.
+	 * @return false if there is none or the search was aborted
+	 */
+	private boolean search(boolean ours, int depth, boolean root) {
+		if (enemy == 0) {
+			return true;
+		}
+		if (mine == 0 || depth == 0) {
+			return false;
+		}
+		if (++nodes % CHECK_INTERVAL == 0 && System.nanoTime() > deadline) {
+			aborted = true;
+		}
+		if (aborted) {
+			return false;
+		}
+
+		long key = ours ? hash : hash ^ OPPONENT_TO_MOVE;
+		int slot = (int) (key ^ key >>> 32) & (keys.length - 1);
+		int tableMove = -1;
+		if (keys[slot] == key) {
+			int entry = data[slot];
+			boolean stored = (entry & 1) != 0;
+			int storedDepth = (entry >>> 1) & 63;
+			if (!root && (stored ? depth >= storedDepth : depth <= storedDepth)) {
+				return stored;
+			}
+			tableMove = (entry >>> 7) - 1;
+		}
+
+		// we look for one order that wins, the opponent for one that doesn't lose
+		long own = ours ? mine : enemy;
+		boolean win = !ours;
+		int best = -1;
+		if (tableMove >= 0) {
+			int s = tableMove >>> 6;
+			int d = tableMove & 63;
+			if ((own >>> s & 1) != 0 && ships[s] > 1 && (own >>> d & 1) == 0 && (all >>> d & 1) != 0) {
+				if (child(ours, s, d, depth) == ours) {
+					win = ours;
+					best = tableMove;
+				}
+			}
+		}
+		// the opponent's planets first, then (for the opponent) the neutral ones
+		for (int pass = 0; pass < (ours ? 1 : 2) && win != ours && !aborted; pass++) {
+			long targets = pass == 0 ? (ours ? enemy : mine) : all & ~mine & ~enemy;
+			for (long sources = own; sources != 0 && win != ours && !aborted; sources &= sources - 1) {
+				int s = Long.numberOfTrailingZeros(sources);
+				if (ships[s] <= 1) {
+					continue;
+				}
+				for (long t = targets; t != 0; t &= t - 1) {
+					int d = Long.numberOfTrailingZeros(t);
+					if (s * 64 + d == tableMove) {
+						continue;
+					}
+					if (child(ours, s, d, depth) == ours) {
+						win = ours;
+						best = s * 64 + d;
+						break;
+					}
+				}
+			}
+		}
+		if (win != ours && !aborted) {
+			// passing
+			growth(1);
+			if (search(!ours, depth - 1, false) == ours) {
+				win = ours;
+			}
+			growth(-1);
+		}
+		if (aborted) {
+			return false;
+		}
+		if (root && win && best >= 0) {
+			bestSource = best >>> 6;
+			bestDest = best & 63;
+		}
+		keys[slot] = key;
+		data[slot] = (win ? 1 : 0) | depth << 1 | (best + 1) << 7;
+		return win;
+	}
+
+	/**
+	 * Plays the order and growth, searches the position and takes them back.
+	 */
+	private boolean child(boolean ours, int source, int dest, int depth) {
+		long savedMine = mine;
+		long savedEnemy = enemy;
+		long savedHash = hash;
+		int sourceShips = ships[source];
+		int destShips = ships[dest];
+
+		hash ^= key(source, owner(source), sourceShips) ^ key(dest, owner(dest), destShips);
+		int sent = sourceShips / 2;
+		ships[source] = sent;
+		if (destShips < sent) {
+			long bit = 1L << dest;
+			if (ours) {
+				mine |= bit;
+				enemy &= ~bit;
+			} else {
+				enemy |= bit;
+				mine &= ~bit;
+			}
+		}
+		ships[dest] = Math.abs(destShips - sent);
+		hash ^= key(source, owner(source), ships[source]) ^ key(dest, owner(dest), ships[dest]);
+		growth(1);
+
+		boolean r = search(!ours, depth - 1, false);
+
+		growth(-1);
+		ships[source] = sourceShips;
+		ships[dest] = destShips;
+		mine = savedMine;
+		enemy = savedEnemy;
+		hash = savedHash;
+		return r;
+	}
+
+	/**
+	 * Adds (sign 1) or takes back (-1) a growth step of the owned planets.
+	 */
+	private void growth(int sign) {
+		for (long owned = mine | enemy; owned != 0; owned &= owned - 1) {
+			int i = Long.numberOfTrailingZeros(owned);
+			if (growth[i] == 0) {
+				continue;
+			}
+			int owner = owner(i);
+			hash ^= key(i, owner, ships[i]);
+			ships[i] += sign * growth[i];
+			hash ^= key(i, owner, ships[i]);
+		}
+	}
+
+	private int owner(int planet) {
+		return (mine >>> planet & 1) != 0 ? 1 : (enemy >>> planet & 1) != 0 ? 2 : 0;
+	}
+
+	private static long key(int planet, int owner, int ships) {
+		long z = ((long) planet << 40 | (long) owner << 32 | ships & 0xffffffffL) * 0x9E3779B97F4A7C15L;
+		z = (z ^ z >>> 30) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ z >>> 27) * 0x94D049BB133111EBL;
+		return z ^ z >>> 31;
+	}
+
+	public String report() {
+		return String.format("endgame %s at depth %d of %d, %d nodes%s, move %d -> %d", won ? "win" : "not proven", depthReached, maxDepth,
+				nodes, aborted ? " (timed out)" : "", bestSource, bestDest);
+	}
+}
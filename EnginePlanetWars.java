@@ -0,0 +1,35 @@
+import java.util.*;
+
+/** PlanetWars as a bot sees it inside the in-process GameEngine.
+ * Orders are recorded instead of written to stdout, and FinishTurn does nothing; the engine
+ * collects the orders with Orders() after DoTurn returns.
+ */
+
+public class EnginePlanetWars extends PlanetWars {
+
+	private int[] orders = new int[8];
+	private int numOrders = 0;
+
+	public EnginePlanetWars(String gameState) {
+		super(gameState);
+	}
+
+	public void IssueOrder(Planet source, Planet dest) {
+		if (2 * numOrders + 2 > orders.length) {
+			orders = Arrays.copyOf(orders, 2 * orders.length);
+		}
+		orders[2 * numOrders] = source.PlanetID();
+		orders[2 * numOrders + 1] = dest.PlanetID();
+		numOrders++;
+	}
+
+	public void FinishTurn() {
+	}
+
+	/**
+	 * The orders issued so far as source, dest pairs.
+	 */
+	public int[] Orders() {
+		return Arrays.copyOf(orders, 2 * numOrders);
+	}
+}
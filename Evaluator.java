@@ -0,0 +1,52 @@
+/** Scores a simulated position from player 1's point of view, higher is better for us.
+ * The searches (AlphaBetaSearch, ReplySearch) and the Minimizing opponent model take one, so a
+ * bot changes its evaluation by configuration instead of by subclassing the search.
+ *
+ * The evaluations read the running totals of SimulationState, so they take constant time
+ * whatever the size of the map. "The enemy" is the strongest opponent (SimulationState.rival),
+ * which in a two-player game is simply player 2; in a game with more opponents, ships an opponent
+ * loses to another one are not counted as our gain.
+ */
+
+public interface Evaluator {
+
+	int evaluate(SimulationState state);
+
+	/** InceptionBot's evaluateState: ships on my planets minus ships on enemy planets. */
+	Evaluator SHIPS = new Evaluator() {
+		public int evaluate(SimulationState state) {
+			return state.totalShips(1) - state.playerShips(state.rival());
+		}
+	};
+
+	/**
+	 * JorroZorRoBot's Heuristic and InceptionBot31's evaluateState: ships plus growth rate of
+	 * all my planets minus those of all enemy planets.
+	 */
+	Evaluator SHIPS_AND_GROWTH = new Evaluator() {
+		public int evaluate(SimulationState state) {
+			int rival = state.rival();
+			return state.totalShips(1) + state.totalGrowth(1) - state.playerShips(rival) - state.playerGrowth(rival);
+		}
+	};
+
+	/**
+	 * Ships plus growthWeight times the growth rate of my planets minus those of the enemy
+	 * planets, rounded; SHIPS_AND_GROWTH for a weight of 1 and SHIPS for 0 (see Tuner).
+	 */
+	public static class Weighted implements Evaluator {
+
+		public final double growthWeight;
+
+		public Weighted(double growthWeight) {
+			this.growthWeight = growthWeight;
+		}
+
+		public int evaluate(SimulationState state) {
+			int rival = state.rival();
+			int ships = state.totalShips(1) - state.playerShips(rival);
+			int growth = state.totalGrowth(1) - state.playerGrowth(rival);
+			return (int) Math.round(ships + growthWeight * growth);
+		}
+	}
+}
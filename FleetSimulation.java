@@ -0,0 +1,323 @@
+import java.util.*;
+
+/** Event-driven Planet Wars simulator that models fleets and travel time.
+ * Unlike SimulationState, attacks do not resolve instantly: a launched fleet travels for
+ * Distance(source, dest) turns and fights when it arrives, following the engine's rules
+ * (growth first, then all forces at the planet fight; the largest force wins and keeps the
+ * difference to the second largest, a tie for the largest leaves the owner with 0 ships).
+ *
+ * In-flight fleets are kept in a binary heap ordered by arrival turn, and planets are only
+ * brought up to date when a fleet arrives or when they are queried: a planet stores the turn its
+ * ship count was last valid for, and growth since then is added on demand. Advancing 30 turns
+ * therefore costs only the arrivals that happen, not 30 passes over every planet.
+ */
+
+public class FleetSimulation {
+
+	final int[] owner;
+	final int[] ships;
+	final int[] growth;
+	final int[] updated;
+	final MapGeometry geometry;
+
+	// fleets in flight, heap[0..fleets) holds fleet slots ordered by (arrival, dest)
+	int[] fleetOwner = new int[16];
+	int[] fleetShips = new int[16];
+	int[] fleetDest = new int[16];
+	int[] fleetArrival = new int[16];
+	int[] heap = new int[16];
+	int fleets = 0;
+	int[] freeSlots = new int[16];
+	int free = 0;
+	int slots = 0;
+
+	int turn = 0;
+
+	public FleetSimulation(PlanetWars pw) {
+		int n = pw.NumPlanets();
+		owner = new int[n];
+		ships = new int[n];
+		growth = new int[n];
+		updated = new int[n];
+		geometry = MapGeometry.of(pw);
+		for (Planet p : pw.Planets()) {
+			int id = p.PlanetID();
+			owner[id] = p.Owner();
+			ships[id] = p.NumShips();
+			growth[id] = p.GrowthRate();
+		}
+		for (Fleet f : pw.Fleets()) {
+			addFleet(f.Owner(), f.NumShips(), f.DestinationPlanet(), f.TurnsRemaining());
+		}
+	}
+
+	public FleetSimulation(SimulationState state) {
+		int n = state.NumPlanets();
+		owner = new int[n];
+		ships = new int[n];
+		growth = new int[n];
+		updated = new int[n];
+		geometry = state.Geometry();
+		for (int i = 0; i < n; i++) {
+			owner[i] = state.Owner(i);
+			ships[i] = state.NumShips(i);
+			growth[i] = state.GrowthRate(i);
+		}
+	}
+
+	private FleetSimulation(FleetSimulation sim) {
+		owner = sim.owner.clone();
+		ships = sim.ships.clone();
+		growth = sim.growth;
+		updated = sim.updated.clone();
+		geometry = sim.geometry;
+		fleetOwner = sim.fleetOwner.clone();
+		fleetShips = sim.fleetShips.clone();
+		fleetDest = sim.fleetDest.clone();
+		fleetArrival = sim.fleetArrival.clone();
+		heap = sim.heap.clone();
+		fleets = sim.fleets;
+		freeSlots = sim.freeSlots.clone();
+		free = sim.free;
+		slots = sim.slots;
+		turn = sim.turn;
+	}
+
+	public FleetSimulation copy() {
+		return new FleetSimulation(this);
+	}
+
+	/**
+	 * Sends numShips ships from source to dest at the current turn. The source must be owned
+	 * (not neutral) and have the ships; otherwise nothing happens.
+	 * @return true if the fleet was launched
+	 */
+	public boolean launch(int source, int dest, int numShips) {
+		bringUpToDate(source);
+		if (owner[source] == 0 || numShips <= 0 || numShips > ships[source] || source == dest) {
+			return false;
+		}
+		ships[source] -= numShips;
+		addFleet(owner[source], numShips, dest, Distance(source, dest));
+		return true;
+	}
+
+	/**
+	 * Advances the simulation to the given turn, resolving every fleet arrival on the way.
+	 */
+	public void advanceTo(int targetTurn) {
+		while (fleets > 0 && fleetArrival[heap[0]] <= targetTurn) {
+			int first = heap[0];
+			int arrival = fleetArrival[first];
+			int dest = fleetDest[first];
+			resolveArrivals(arrival, dest);
+		}
+		if (targetTurn > turn) {
+			turn = targetTurn;
+		}
+	}
+
+	public void advance(int turns) {
+		advanceTo(turn + turns);
+	}
+
+	public int Turn() {
+		return turn;
+	}
+
+	/**
+	 * Turn at which the next fleet arrives, or -1 if no fleets are in flight.
+	 */
+	public int nextArrival() {
+		return fleets == 0 ? -1 : fleetArrival[heap[0]];
+	}
+
+	public int NumPlanets() {
+		return owner.length;
+	}
+
+	public int NumFleets() {
+		return fleets;
+	}
+
+	public int Owner(int planetID) {
+		return owner[planetID];
+	}
+
+	public int NumShips(int planetID) {
+		bringUpToDate(planetID);
+		return ships[planetID];
+	}
+
+	public int GrowthRate(int planetID) {
+		return growth[planetID];
+	}
+
+	/**
+	 * Ships of the given player on planets and in flight at the current turn.
+	 */
+	public int NumShips(int playerID, boolean includeFleets) {
+		int numShips = 0;
+		for (int i = 0; i < owner.length; i++) {
+			if (owner[i] == playerID) {
+				numShips += NumShips(i);
+			}
+		}
+		if (includeFleets) {
+			for (int i = 0; i < fleets; i++) {
+				if (fleetOwner[heap[i]] == playerID) {
+					numShips += fleetShips[heap[i]];
+				}
+			}
+		}
+		return numShips;
+	}
+
+	public int Distance(int sourcePlanet, int destinationPlanet) {
+		return geometry.Distance(sourcePlanet, destinationPlanet);
+	}
+
+	/**
+	 * Same as PlanetWars.Winner(), counting fleets in flight as well.
+	 */
+	public int Winner() {
+		Set<Integer> remainingPlayers = new TreeSet<Integer>();
+		for (int i = 0; i < owner.length; i++) {
+			if (owner[i] != 0) {
+				remainingPlayers.add(owner[i]);
+			}
+		}
+		for (int i = 0; i < fleets; i++) {
+			remainingPlayers.add(fleetOwner[heap[i]]);
+		}
+		switch (remainingPlayers.size()) {
+		case 0:
+			return 0;
+		case 1:
+			return ((Integer) remainingPlayers.toArray()[0]).intValue();
+		default:
+			return -1;
+		}
+	}
+
+	private void bringUpToDate(int planetID) {
+		if (updated[planetID] < turn) {
+			if (owner[planetID] != 0) {
+				ships[planetID] += growth[planetID] * (turn - updated[planetID]);
+			}
+			updated[planetID] = turn;
+		}
+	}
+
+	/**
+	 * Grows the planet up to the arrival turn, then lets the planet's garrison and every fleet
+	 * arriving there at that turn fight it out.
+	 */
+	private void resolveArrivals(int arrival, int planet) {
+		int saved = turn;
+		turn = Math.max(turn, arrival);
+		bringUpToDate(planet);
+		turn = saved;
+
+		// forces per owner; the garrison fights as well, neutral included
+		int[] forceOwner = new int[4];
+		int[] force = new int[4];
+		int forces = 1;
+		forceOwner[0] = owner[planet];
+		force[0] = ships[planet];
+		while (fleets > 0 && fleetArrival[heap[0]] == arrival && fleetDest[heap[0]] == planet) {
+			int slot = pop();
+			int k = 0;
+			while (k < forces && forceOwner[k] != fleetOwner[slot]) {
+				k++;
+			}
+			if (k == forces) {
+				if (forces == forceOwner.length) {
+					forceOwner = Arrays.copyOf(forceOwner, 2 * forces);
+					force = Arrays.copyOf(force, 2 * forces);
+				}
+				forceOwner[forces] = fleetOwner[slot];
+				force[forces++] = 0;
+			}
+			force[k] += fleetShips[slot];
+			freeSlots[free++] = slot;
+		}
+
+		int winner = 0;
+		int second = -1;
+		for (int k = 1; k < forces; k++) {
+			if (force[k] > force[winner]) {
+				second = winner;
+				winner = k;
+			} else if (second < 0 || force[k] > force[second]) {
+				second = k;
+			}
+		}
+		int secondForce = second < 0 ? 0 : force[second];
+		if (force[winner] > secondForce) {
+			owner[planet] = forceOwner[winner];
+			ships[planet] = force[winner] - secondForce;
+		} else {
+			ships[planet] = 0;
+		}
+	}
+
+	private void addFleet(int fleetOwnerID, int numShips, int dest, int travelTurns) {
+		int slot;
+		if (free > 0) {
+			slot = freeSlots[--free];
+		} else {
+			slot = slots++;
+			if (slot == fleetOwner.length) {
+				int size = 2 * slot;
+				fleetOwner = Arrays.copyOf(fleetOwner, size);
+				fleetShips = Arrays.copyOf(fleetShips, size);
+				fleetDest = Arrays.copyOf(fleetDest, size);
+				fleetArrival = Arrays.copyOf(fleetArrival, size);
+				heap = Arrays.copyOf(heap, size);
+				freeSlots = Arrays.copyOf(freeSlots, size);
+			}
+		}
+		fleetOwner[slot] = fleetOwnerID;
+		fleetShips[slot] = numShips;
+		fleetDest[slot] = dest;
+		fleetArrival[slot] = turn + Math.max(1, travelTurns);
+
+		int i = fleets++;
+		while (i > 0) {
+			int parent = (i - 1) >> 1;
+			if (!before(slot, heap[parent]))
+				break;
+			heap[i] = heap[parent];
+			i = parent;
+		}
+		heap[i] = slot;
+	}
+
+	private int pop() {
+		int top = heap[0];
+		int last = heap[--fleets];
+		int i = 0;
+		while (true) {
+			int child = 2 * i + 1;
+			if (child >= fleets)
+				break;
+			if (child + 1 < fleets && before(heap[child + 1], heap[child]))
+				child++;
+			if (!before(heap[child], last))
+				break;
+			heap[i] = heap[child];
+			i = child;
+		}
+		if (fleets > 0) {
+			heap[i] = last;
+		}
+		return top;
+	}
+
+	private boolean before(int a, int b) {
+		if (fleetArrival[a] != fleetArrival[b])
+			return fleetArrival[a] < fleetArrival[b];
+		return fleetDest[a] < fleetDest[b];
+	}
+}
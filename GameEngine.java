@@ -0,0 +1,467 @@
+import java.util.*;
+
+/** In-process Planet Wars game engine for two or more players.
+ * Plays the same rules as the external engine, without a JVM per bot: every turn each player
+ * gets the game state from its own point of view (it is always player 1), its orders are
+ * carried out (every order sends half of the ships on the source planet), fleets move one
+ * step, owned planets grow, and fleets that arrive fight it out with the planet's garrison (the
+ * largest force wins and keeps the difference to the second largest, a tie for the largest
+ * leaves the owner with 0 ships).
+ *
+ * A player that sends ships from a planet it doesn't own, or whose DoTurn throws, is dropped and
+ * loses, like a bot that crashes or misbehaves under the external engine. The game ends when at
+ * most one player is left with planets or fleets and not dropped, or after maxTurns; then the
+ * remaining player with the most ships wins.
+ *
+ * The number of players is the highest owner on the map (at least 2), for example 4 on the maps
+ * of randomMap(random, groups, 4). Every player sees itself as player 1 and the player that is 1
+ * on the map in its place; the other owners keep their ids.
+ */
+
+public class GameEngine {
+
+	/** One side of a game: returns its orders (source, dest pairs) for a game state. */
+	public static abstract class Player {
+		public abstract int[] DoTurn(String gameState);
+	}
+
+	public static final int DEFAULT_MAX_TURNS = 200;
+
+	final int numPlanets;
+	final double[] x;
+	final double[] y;
+	final int[] owner;
+	final int[] ships;
+	final int[] growth;
+
+	// fleets in flight: owner, ships, source, dest, total trip length, turns remaining
+	final List<int[]> fleets = new ArrayList<int[]>();
+
+	final int numPlayers;
+	int turn = 0;
+	public int maxTurns = DEFAULT_MAX_TURNS;
+	final boolean[] dropped;
+
+	/**
+	 * Starts a game on a map in the engine's format ("P x y owner ships growth" lines,
+	 * optionally "F" lines).
+	 */
+	public GameEngine(String map) {
+		List<String[]> planetLines = new ArrayList<String[]>();
+		for (String line : map.split("\n")) {
+			int comment = line.indexOf('#');
+			if (comment >= 0) {
+				line = line.substring(0, comment);
+			}
+			String[] tokens = line.trim().split("\\s+");
+			if (tokens[0].equals("P") && tokens.length == 6) {
+				planetLines.add(tokens);
+			} else if (tokens[0].equals("F") && tokens.length == 7) {
+				fleets.add(new int[] {
+						Integer.parseInt(tokens[1]), Integer.parseInt(tokens[2]), Integer.parseInt(tokens[3]),
+						Integer.parseInt(tokens[4]), Integer.parseInt(tokens[5]), Integer.parseInt(tokens[6]) });
+			}
+		}
+		numPlanets = planetLines.size();
+		x = new double[numPlanets];
+		y = new double[numPlanets];
+		owner = new int[numPlanets];
+		ships = new int[numPlanets];
+		growth = new int[numPlanets];
+		for (int i = 0; i < numPlanets; i++) {
+			String[] tokens = planetLines.get(i);
+			x[i] = Double.parseDouble(tokens[1]);
+			y[i] = Double.parseDouble(tokens[2]);
+			owner[i] = Integer.parseInt(tokens[3]);
+			ships[i] = Integer.parseInt(tokens[4]);
+			growth[i] = Integer.parseInt(tokens[5]);
+		}
+		int highest = 2;
+		for (int i = 0; i < numPlanets; i++) {
+			highest = Math.max(highest, owner[i]);
+		}
+		for (int[] fleet : fleets) {
+			highest = Math.max(highest, fleet[0]);
+		}
+		numPlayers = highest;
+		dropped = new boolean[numPlayers + 1];
+	}
+
+	public int NumPlayers() {
+		return numPlayers;
+	}
+
+	/**
+	 * Plays a two-player game to the end.
+	 * @return the winner (1 or 2), or 0 for a draw
+	 */
+	public int play(Player player1, Player player2) {
+		return play(new Player[] { player1, player2 });
+	}
+
+	/**
+	 * Plays the game to the end; players[i] is player i + 1.
+	 * @return the winner, or 0 for a draw
+	 */
+	public int play(Player[] players) {
+		if (players.length != numPlayers) {
+			throw new IllegalArgumentException(players.length + " players for a map of " + numPlayers);
+		}
+		while (!isOver()) {
+			step(players);
+		}
+		return Winner();
+	}
+
+	/**
+	 * Plays one turn of a two-player game, see step(Player[]).
+	 */
+	public void step(Player player1, Player player2) {
+		step(new Player[] { player1, player2 });
+	}
+
+	/**
+	 * Plays one turn: all players' orders, fleet movement, growth and battles.
+	 */
+	public void step(Player[] players) {
+		int[][] orders = new int[players.length][];
+		for (int i = 0; i < players.length; i++) {
+			orders[i] = orders(i + 1, players[i]);
+		}
+		for (int i = 0; i < players.length; i++) {
+			issueOrders(i + 1, orders[i]);
+		}
+		advance();
+		turn++;
+	}
+
+	public boolean isOver() {
+		if (turn >= maxTurns) {
+			return true;
+		}
+		int playing = 0;
+		for (int p = 1; p <= numPlayers; p++) {
+			if (!dropped[p] && isAlive(p)) {
+				playing++;
+			}
+		}
+		return playing <= 1;
+	}
+
+	/**
+	 * The winner once the game is over (0 for a draw), -1 while it is still going.
+	 */
+	public int Winner() {
+		// a player that is the only one not dropped wins
+		int remaining = 0;
+		int last = 0;
+		for (int p = 1; p <= numPlayers; p++) {
+			if (!dropped[p]) {
+				remaining++;
+				last = p;
+			}
+		}
+		if (remaining <= 1) {
+			return last;
+		}
+		int alive = 0;
+		int lastAlive = 0;
+		for (int p = 1; p <= numPlayers; p++) {
+			if (!dropped[p] && isAlive(p)) {
+				alive++;
+				lastAlive = p;
+			}
+		}
+		if (alive >= 2 && turn < maxTurns) {
+			return -1;
+		}
+		if (alive == 1) {
+			return lastAlive;
+		}
+		// out of turns (or nobody left): the most ships
+		int winner = 0;
+		int most = -1;
+		for (int p = 1; p <= numPlayers; p++) {
+			if (dropped[p]) {
+				continue;
+			}
+			int numShips = NumShips(p);
+			if (numShips > most) {
+				most = numShips;
+				winner = p;
+			} else if (numShips == most) {
+				winner = 0;
+			}
+		}
+		return winner;
+	}
+
+	public int Turn() {
+		return turn;
+	}
+
+	/**
+	 * Ships of the player on its planets and in flight.
+	 */
+	public int NumShips(int playerID) {
+		int numShips = 0;
+		for (int i = 0; i < numPlanets; i++) {
+			if (owner[i] == playerID) {
+				numShips += ships[i];
+			}
+		}
+		for (int[] fleet : fleets) {
+			if (fleet[0] == playerID) {
+				numShips += fleet[1];
+			}
+		}
+		return numShips;
+	}
+
+	public int Distance(int sourcePlanet, int destinationPlanet) {
+		double dx = x[sourcePlanet] - x[destinationPlanet];
+		double dy = y[sourcePlanet] - y[destinationPlanet];
+		return (int) Math.ceil(Math.sqrt(dx * dx + dy * dy));
+	}
+
+	/**
+	 * The game state as the given player sees it: its own planets and fleets are owned by
+	 * player 1 and those of player 1 by the given player.
+	 */
+	public String gameState(int playerID) {
+		StringBuilder s = new StringBuilder();
+		for (int i = 0; i < numPlanets; i++) {
+			s.append("P ").append(x[i]).append(' ').append(y[i]).append(' ').append(view(owner[i], playerID))
+					.append(' ').append(ships[i]).append(' ').append(growth[i]).append('\n');
+		}
+		for (int[] fleet : fleets) {
+			s.append("F ").append(view(fleet[0], playerID)).append(' ').append(fleet[1]).append(' ').append(fleet[2])
+					.append(' ').append(fleet[3]).append(' ').append(fleet[4]).append(' ').append(fleet[5]).append('\n');
+		}
+		return s.toString();
+	}
+
+	private static int view(int owner, int playerID) {
+		if (playerID == 1 || owner == 0) {
+			return owner;
+		}
+		return owner == playerID ? 1 : owner == 1 ? playerID : owner;
+	}
+
+	private boolean isAlive(int playerID) {
+		for (int i = 0; i < numPlanets; i++) {
+			if (owner[i] == playerID) {
+				return true;
+			}
+		}
+		for (int[] fleet : fleets) {
+			if (fleet[0] == playerID) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private int[] orders(int playerID, Player player) {
+		if (dropped[playerID]) {
+			return new int[0];
+		}
+		try {
+			return player.DoTurn(gameState(playerID));
+		} catch (RuntimeException e) {
+			dropped[playerID] = true;
+			return new int[0];
+		}
+	}
+
+	private void issueOrders(int playerID, int[] orders) {
+		for (int i = 0; i + 1 < orders.length; i += 2) {
+			int source = orders[i];
+			int dest = orders[i + 1];
+			if (source < 0 || source >= numPlanets || dest < 0 || dest >= numPlanets || source == dest
+					|| owner[source] != playerID) {
+				dropped[playerID] = true;
+				return;
+			}
+			int numShips = ships[source] / 2;
+			if (numShips <= 0) {
+				continue;
+			}
+			ships[source] -= numShips;
+			int distance = Distance(source, dest);
+			fleets.add(new int[] { playerID, numShips, source, dest, distance, distance });
+		}
+	}
+
+	private void advance() {
+		for (int[] fleet : fleets) {
+			fleet[5]--;
+		}
+		for (int i = 0; i < numPlanets; i++) {
+			if (owner[i] != 0) {
+				ships[i] += growth[i];
+			}
+		}
+		for (int planet = 0; planet < numPlanets; planet++) {
+			fight(planet);
+		}
+	}
+
+	/**
+	 * Lets every fleet arriving at the planet this turn fight the garrison.
+	 */
+	private void fight(int planet) {
+		// forces per player, the garrison included
+		int[] force = new int[numPlayers + 1];
+		force[owner[planet]] = ships[planet];
+		boolean arrivals = false;
+		for (Iterator<int[]> it = fleets.iterator(); it.hasNext();) {
+			int[] fleet = it.next();
+			if (fleet[3] == planet && fleet[5] <= 0) {
+				force[fleet[0]] += fleet[1];
+				arrivals = true;
+				it.remove();
+			}
+		}
+		if (!arrivals) {
+			return;
+		}
+		int winner = 0;
+		int second = -1;
+		for (int k = 1; k < force.length; k++) {
+			if (force[k] > force[winner]) {
+				second = winner;
+				winner = k;
+			} else if (second < 0 || force[k] > force[second]) {
+				second = k;
+			}
+		}
+		if (force[winner] > force[second]) {
+			owner[planet] = winner;
+			ships[planet] = force[winner] - force[second];
+		} else {
+			ships[planet] = 0;
+		}
+	}
+
+	/**
+	 * Generates a map that is point-symmetric around its center, so neither player is favoured:
+	 * one home planet per player (100 ships, growth 5), a neutral center planet and pairs of
+	 * neutral planets.
+	 */
+	public static String randomMap(Random random, int pairs) {
+		double size = 24.;
+		double center = size / 2;
+		List<double[]> planets = new ArrayList<double[]>();
+		// x, y, owner, ships, growth
+		planets.add(new double[] { center, center, 0, random.nextInt(100), random.nextInt(6) });
+		double[] home = position(random, planets, size, center);
+		planets.add(new double[] { home[0], home[1], 1, 100, 5 });
+		planets.add(new double[] { size - home[0], size - home[1], 2, 100, 5 });
+		for (int i = 0; i < pairs; i++) {
+			double[] p = position(random, planets, size, center);
+			int numShips = 1 + random.nextInt(100);
+			int growthRate = random.nextInt(6);
+			planets.add(new double[] { p[0], p[1], 0, numShips, growthRate });
+			planets.add(new double[] { size - p[0], size - p[1], 0, numShips, growthRate });
+		}
+		StringBuilder s = new StringBuilder();
+		for (double[] p : planets) {
+			s.append(String.format(Locale.ROOT, "P %.6f %.6f %d %d %d\n", p[0], p[1], (int) p[2], (int) p[3], (int) p[4]));
+		}
+		return s.toString();
+	}
+
+	/**
+	 * Generates a map for the given number of players that is symmetric under rotation by a
+	 * 1/players turn around its center: one home planet per player (100 ships, growth 5), a
+	 * neutral center planet and groups of one neutral planet per player. For two players this is
+	 * randomMap(random, groups).
+	 */
+	public static String randomMap(Random random, int groups, int players) {
+		if (players == 2) {
+			return randomMap(random, groups);
+		}
+		double size = 24.;
+		double center = size / 2;
+		List<double[]> planets = new ArrayList<double[]>();
+		// x, y, owner, ships, growth
+		planets.add(new double[] { center, center, 0, random.nextInt(100), random.nextInt(6) });
+		double[] home = position(random, planets, center, players);
+		for (int p = 0; p < players; p++) {
+			double[] r = rotate(home, center, p, players);
+			planets.add(new double[] { r[0], r[1], p + 1, 100, 5 });
+		}
+		for (int i = 0; i < groups; i++) {
+			double[] position = position(random, planets, center, players);
+			int numShips = 1 + random.nextInt(100);
+			int growthRate = random.nextInt(6);
+			for (int p = 0; p < players; p++) {
+				double[] r = rotate(position, center, p, players);
+				planets.add(new double[] { r[0], r[1], 0, numShips, growthRate });
+			}
+		}
+		StringBuilder s = new StringBuilder();
+		for (double[] p : planets) {
+			s.append(String.format(Locale.ROOT, "P %.6f %.6f %d %d %d\n", p[0], p[1], (int) p[2], (int) p[3], (int) p[4]));
+		}
+		return s.toString();
+	}
+
+	/**
+	 * The position rotated k/players of a turn around the center.
+	 */
+	private static double[] rotate(double[] position, double center, int k, int players) {
+		double angle = 2 * Math.PI * k / players;
+		double dx = position[0] - center;
+		double dy = position[1] - center;
+		return new double[] { center + dx * Math.cos(angle) - dy * Math.sin(angle), center + dx * Math.sin(angle) + dy * Math.cos(angle) };
+	}
+
+	/**
+	 * A random position within the circle around the center, so that its rotations stay on the
+	 * map, at least two units away from the planets so far and from all its rotations.
+	 */
+	private static double[] position(Random random, List<double[]> planets, double center, int players) {
+		while (true) {
+			double[] position = { random.nextDouble() * 2 * center, random.nextDouble() * 2 * center };
+			double radius = Math.hypot(position[0] - center, position[1] - center);
+			boolean free = radius >= 1. && radius <= center;
+			for (int k = 0; k < players && free; k++) {
+				double[] r = rotate(position, center, k, players);
+				for (double[] p : planets) {
+					if (Math.hypot(r[0] - p[0], r[1] - p[1]) < 2.) {
+						free = false;
+						break;
+					}
+				}
+				if (k > 0 && Math.hypot(r[0] - position[0], r[1] - position[1]) < 2.) {
+					free = false;
+				}
+			}
+			if (free) {
+				return position;
+			}
+		}
+	}
+
+	/**
+	 * A random position at least two units away from the planets so far and from its own mirror image.
+	 */
+	private static double[] position(Random random, List<double[]> planets, double size, double center) {
+		while (true) {
+			double px = random.nextDouble() * size;
+			double py = random.nextDouble() * size;
+			boolean free = Math.hypot(px - center, py - center) >= 1.;
+			for (double[] p : planets) {
+				if (Math.hypot(px - p[0], py - p[1]) < 2. || Math.hypot(size - px - p[0], size - py - p[1]) < 2.) {
+					free = false;
+					break;
+				}
+			}
+			if (free) {
+				return new double[] { px, py };
+			}
+		}
+	}
+}
@@ -0,0 +1,177 @@
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+import java.util.zip.*;
+
+/** Logs every game state a bot receives and the orders it issues to a binary record file.
+ * Recording is off by default; switch it on with the system property record.file=<file> (or
+ * <bot>.record.file). The file is only ever appended to, so one file can hold any number of games
+ * and bots. GameStateReader hands each turn to the recorder as it is parsed, OrderWriter the
+ * orders, and the turn's record is written once its "go" line has been sent to the engine, in a
+ * single write, so a bot that is killed leaves at most one truncated record. Later runs append
+ * after it, so every record starts with a sync word and ends with a CRC: GameRecords checks both
+ * and skips a torn record to the next good one.
+ *
+ * The file starts with the int MAGIC, followed by the records, all big-endian:
+ *
+ *     int sync            SYNC
+ *     int length          bytes of the record after this field
+ *     int turn            1 for the first turn of a game
+ *     int micros          time from the end of the game state to the "go" line
+ *     short planets, short fleets, short orders
+ *     planets * (double x, double y, byte owner, int ships, byte growth)
+ *     fleets * (byte owner, int ships, short source, short dest, short totalTrip, short turnsRemaining)
+ *     orders * (short source, short dest)
+ *     int crc             CRC-32 of the record from turn to the last order
+ *
+ * Owners are as the bot saw them, 1 being the bot. GameRecords reads and replays the files.
+ */
+
+public class GameRecorder {
+
+	/** "PWR2", the first four bytes of every record file. */
+	public static final int MAGIC = 0x50575232;
+
+	/** The first four bytes of every record. */
+	public static final int SYNC = 0x9E3779B9;
+
+	// bytes of a record before its planets, sync and length included
+	static final int HEADER = 4 + 4 + 4 + 4 + 3 * 2;
+	static final int CRC = 4;
+	static final int PLANET = 8 + 8 + 1 + 4 + 1;
+	static final int FLEET = 1 + 4 + 4 * 2;
+	static final int ORDER = 2 * 2;
+
+	private final FileChannel channel;
+	private ByteBuffer buffer = ByteBuffer.allocate(1 << 12);
+	private final CRC32 crc = new CRC32();
+
+	private int turn = 0;
+	// a turn has begun and not been written yet
+	private boolean recording;
+	private long start;
+	private int numOrders;
+	// position of the order count in the buffer
+	private int ordersField;
+
+	public GameRecorder(File file) throws IOException {
+		channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+		if (channel.size() == 0) {
+			ByteBuffer magic = ByteBuffer.allocate(4);
+			magic.putInt(MAGIC);
+			magic.flip();
+			write(magic);
+		}
+	}
+
+	/**
+	 * The recorder of the given bot, or null if it doesn't record (or its file can't be opened).
+	 */
+	public static GameRecorder open(String bot) {
+		String file = System.getProperty(bot + ".record.file", System.getProperty("record.file"));
+		if (file == null || file.isEmpty()) {
+			return null;
+		}
+		try {
+			return new GameRecorder(new File(file));
+		} catch (IOException e) {
+			System.err.println("can't record to " + file + ": " + e);
+			return null;
+		}
+	}
+
+	/**
+	 * Starts the record of the turn the reader has just read.
+	 */
+	public void beginTurn(GameStateReader reader) {
+		start = System.nanoTime();
+		turn++;
+		ensureCapacity(HEADER + reader.numPlanets * PLANET + reader.numFleets * FLEET + 64 * ORDER + CRC);
+		buffer.clear();
+		buffer.putInt(SYNC);
+		buffer.putInt(0);
+		buffer.putInt(turn);
+		buffer.putInt(0);
+		buffer.putShort((short) reader.numPlanets);
+		buffer.putShort((short) reader.numFleets);
+		ordersField = buffer.position();
+		buffer.putShort((short) 0);
+		for (int i = 0; i < reader.numPlanets; i++) {
+			buffer.putDouble(reader.planetX[i]);
+			buffer.putDouble(reader.planetY[i]);
+			buffer.put((byte) reader.planetOwner[i]);
+			buffer.putInt(reader.planetShips[i]);
+			buffer.put((byte) reader.planetGrowth[i]);
+		}
+		for (int i = 0; i < reader.numFleets; i++) {
+			buffer.put((byte) reader.fleetOwner[i]);
+			buffer.putInt(reader.fleetShips[i]);
+			buffer.putShort((short) reader.fleetSource[i]);
+			buffer.putShort((short) reader.fleetDest[i]);
+			buffer.putShort((short) reader.fleetTotalTrip[i]);
+			buffer.putShort((short) reader.fleetTurnsRemaining[i]);
+		}
+		numOrders = 0;
+		recording = true;
+	}
+
+	/**
+	 * Adds an order to the record of the current turn.
+	 */
+	public void order(int source, int dest) {
+		if (!recording) {
+			return;
+		}
+		ensureCapacity(buffer.position() + ORDER + CRC);
+		buffer.putShort((short) source);
+		buffer.putShort((short) dest);
+		numOrders++;
+	}
+
+	/**
+	 * Reports an order line that couldn't be parsed; the turn is recorded without it.
+	 */
+	public void badOrder(String line) {
+		System.err.println("can't record order \"" + line + "\" of turn " + turn);
+	}
+
+	/**
+	 * Writes the record of the current turn.
+	 */
+	public void endTurn() {
+		if (!recording) {
+			return;
+		}
+		recording = false;
+		long micros = (System.nanoTime() - start) / 1000L;
+		buffer.putInt(4, buffer.position() + CRC - 8);
+		buffer.putInt(12, (int) Math.min(Integer.MAX_VALUE, micros));
+		buffer.putShort(ordersField, (short) numOrders);
+		crc.reset();
+		crc.update(buffer.array(), 8, buffer.position() - 8);
+		buffer.putInt((int) crc.getValue());
+		buffer.flip();
+		try {
+			write(buffer);
+		} catch (IOException e) {
+			System.err.println("can't record turn " + turn + ": " + e);
+		}
+		buffer.clear();
+	}
+
+	private void write(ByteBuffer bytes) throws IOException {
+		while (bytes.hasRemaining()) {
+			channel.write(bytes);
+		}
+	}
+
+	private void ensureCapacity(int capacity) {
+		if (capacity > buffer.capacity()) {
+			ByteBuffer larger = ByteBuffer.allocate(Math.max(2 * buffer.capacity(), capacity));
+			buffer.flip();
+			larger.put(buffer);
+			buffer = larger;
+		}
+	}
+}
@@ -0,0 +1,340 @@
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.zip.*;
+
+/** Reads the record files written by GameRecorder.
+ * The file is memory-mapped and the records are decoded in place: next() moves to the following
+ * record, seek(n) to the n-th one, and the accessors read its planets, fleets and orders straight
+ * from the mapping. planetWars() turns the current record into the game state the bot saw, so a
+ * recorded position can be handed to a bot's DoTurn without going through stdin. A record is only
+ * read if its sync word, length and CRC check out; a torn one (a bot killed while writing, maybe
+ * with later runs appended after it) is skipped up to the next sync word that starts a good
+ * record, and the bytes skipped are counted.
+ *
+ * Usage: java GameRecords file                 number of games and turns, recorded turn times
+ *                                              and the slowest turns
+ *        java GameRecords file -dump N         prints record N as the engine sends it, to replay
+ *                                              the turn by hand or add it to bench/states
+ *        java GameRecords file -replay bot     plays every recorded position with the bot (as
+ *                                              Bot.of names it) and counts the turns on which its
+ *                                              orders differ from the recorded ones
+ */
+
+public class GameRecords {
+
+	private final MappedByteBuffer buffer;
+	// start of every good record (its sync word)
+	private int[] offsets = new int[1024];
+	private int numRecords = 0;
+	// bytes of torn records that were skipped
+	private long skipped;
+
+	// the current record
+	private int index = -1;
+	private int planets;
+	private int fleets;
+	private int orders;
+	private int numPlanets;
+	private int numFleets;
+	private int numOrders;
+
+	private final StringBuilder gameState = new StringBuilder(1 << 12);
+
+	public GameRecords(File file) throws IOException {
+		FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		try {
+			long size = channel.size();
+			if (size > Integer.MAX_VALUE) {
+				throw new IOException(file + " is larger than 2 GB, split it");
+			}
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+		} finally {
+			// the mapping stays valid after the channel is closed
+			channel.close();
+		}
+		if (buffer.limit() < 4 || buffer.getInt(0) != GameRecorder.MAGIC) {
+			throw new IOException(file + " is not a game record file (or of an older format)");
+		}
+		CRC32 crc = new CRC32();
+		int position = 4;
+		while (position + GameRecorder.HEADER <= buffer.limit()) {
+			int length = check(position, crc);
+			if (length < 0) {
+				// not a good record: look for the next sync word
+				position++;
+				skipped++;
+				continue;
+			}
+			if (numRecords == offsets.length) {
+				offsets = Arrays.copyOf(offsets, 2 * numRecords);
+			}
+			offsets[numRecords++] = position;
+			position += 8 + length;
+		}
+		skipped += Math.max(0, buffer.limit() - position);
+	}
+
+	/**
+	 * The length field of the record at position, or -1 if it isn't a good record: no sync word,
+	 * a length that doesn't match its counts or runs past the end, or a wrong CRC.
+	 */
+	private int check(int position, CRC32 crc) {
+		if (buffer.getInt(position) != GameRecorder.SYNC) {
+			return -1;
+		}
+		int length = buffer.getInt(position + 4);
+		int expected = GameRecorder.HEADER - 8 + buffer.getShort(position + 16) * GameRecorder.PLANET
+				+ buffer.getShort(position + 18) * GameRecorder.FLEET + buffer.getShort(position + 20) * GameRecorder.ORDER
+				+ GameRecorder.CRC;
+		if (length != expected || position + 8L + length > buffer.limit()) {
+			return -1;
+		}
+		ByteBuffer body = buffer.duplicate();
+		body.limit(position + 8 + length - GameRecorder.CRC);
+		body.position(position + 8);
+		crc.reset();
+		crc.update(body);
+		return buffer.getInt(position + 8 + length - GameRecorder.CRC) == (int) crc.getValue() ? length : -1;
+	}
+
+	public int size() {
+		return numRecords;
+	}
+
+	/** Bytes of torn records that were skipped. */
+	public long skipped() {
+		return skipped;
+	}
+
+	/**
+	 * Moves to the next record.
+	 * @return false after the last one
+	 */
+	public boolean next() {
+		if (index + 1 >= numRecords) {
+			return false;
+		}
+		seek(index + 1);
+		return true;
+	}
+
+	/**
+	 * Moves to the record with the given number, counting from 0.
+	 */
+	public void seek(int record) {
+		if (record < 0 || record >= numRecords) {
+			throw new IndexOutOfBoundsException("record " + record + " of " + numRecords);
+		}
+		index = record;
+		int position = offsets[record];
+		numPlanets = buffer.getShort(position + 16);
+		numFleets = buffer.getShort(position + 18);
+		numOrders = buffer.getShort(position + 20);
+		planets = position + GameRecorder.HEADER;
+		fleets = planets + numPlanets * GameRecorder.PLANET;
+		orders = fleets + numFleets * GameRecorder.FLEET;
+	}
+
+	public int index() {
+		return index;
+	}
+
+	public int turn() {
+		return buffer.getInt(offsets[index] + 8);
+	}
+
+	/** Microseconds from the end of the game state to the bot's "go". */
+	public int micros() {
+		return buffer.getInt(offsets[index] + 12);
+	}
+
+	public int NumPlanets() {
+		return numPlanets;
+	}
+
+	public double X(int planet) {
+		return buffer.getDouble(planets + planet * GameRecorder.PLANET);
+	}
+
+	public double Y(int planet) {
+		return buffer.getDouble(planets + planet * GameRecorder.PLANET + 8);
+	}
+
+	public int Owner(int planet) {
+		return buffer.get(planets + planet * GameRecorder.PLANET + 16);
+	}
+
+	public int NumShips(int planet) {
+		return buffer.getInt(planets + planet * GameRecorder.PLANET + 17);
+	}
+
+	public int GrowthRate(int planet) {
+		return buffer.get(planets + planet * GameRecorder.PLANET + 21);
+	}
+
+	public int NumFleets() {
+		return numFleets;
+	}
+
+	public int FleetOwner(int fleet) {
+		return buffer.get(fleets + fleet * GameRecorder.FLEET);
+	}
+
+	public int FleetShips(int fleet) {
+		return buffer.getInt(fleets + fleet * GameRecorder.FLEET + 1);
+	}
+
+	public int FleetSource(int fleet) {
+		return buffer.getShort(fleets + fleet * GameRecorder.FLEET + 5);
+	}
+
+	public int FleetDest(int fleet) {
+		return buffer.getShort(fleets + fleet * GameRecorder.FLEET + 7);
+	}
+
+	public int FleetTotalTrip(int fleet) {
+		return buffer.getShort(fleets + fleet * GameRecorder.FLEET + 9);
+	}
+
+	public int FleetTurnsRemaining(int fleet) {
+		return buffer.getShort(fleets + fleet * GameRecorder.FLEET + 11);
+	}
+
+	public int NumOrders() {
+		return numOrders;
+	}
+
+	public int OrderSource(int order) {
+		return buffer.getShort(orders + order * GameRecorder.ORDER);
+	}
+
+	public int OrderDest(int order) {
+		return buffer.getShort(orders + order * GameRecorder.ORDER + 2);
+	}
+
+	/**
+	 * The current record in the engine's protocol, without the "go" line.
+	 */
+	public String gameState() {
+		gameState.setLength(0);
+		for (int i = 0; i < numPlanets; i++) {
+			gameState.append("P ").append(X(i)).append(' ').append(Y(i)).append(' ').append(Owner(i))
+					.append(' ').append(NumShips(i)).append(' ').append(GrowthRate(i)).append('\n');
+		}
+		for (int i = 0; i < numFleets; i++) {
+			gameState.append("F ").append(FleetOwner(i)).append(' ').append(FleetShips(i)).append(' ')
+					.append(FleetSource(i)).append(' ').append(FleetDest(i)).append(' ')
+					.append(FleetTotalTrip(i)).append(' ').append(FleetTurnsRemaining(i)).append('\n');
+		}
+		return gameState.toString();
+	}
+
+	/**
+	 * The current record as the PlanetWars object the bot got; its orders are kept by the
+	 * EnginePlanetWars instead of being printed.
+	 */
+	public EnginePlanetWars planetWars() {
+		return new EnginePlanetWars(gameState());
+	}
+
+	/**
+	 * True if the orders are the recorded ones, as source, dest pairs in the same order.
+	 */
+	public boolean sameOrders(int[] played) {
+		if (played.length != 2 * numOrders) {
+			return false;
+		}
+		for (int i = 0; i < numOrders; i++) {
+			if (played[2 * i] != OrderSource(i) || played[2 * i + 1] != OrderDest(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length != 1 && args.length != 3 || args.length == 3 && !args[1].equals("-dump") && !args[1].equals("-replay")) {
+			System.err.println("usage: java GameRecords file [-dump N | -replay bot]");
+			return;
+		}
+		GameRecords records = new GameRecords(new File(args[0]));
+		if (args.length == 1) {
+			summary(records);
+		} else if (args[1].equals("-dump")) {
+			records.seek(Integer.parseInt(args[2]));
+			System.out.print(records.gameState());
+			System.out.println("go");
+		} else {
+			replay(records, args[2]);
+		}
+	}
+
+	static void summary(GameRecords records) {
+		int games = 0;
+		long planets = 0;
+		long fleets = 0;
+		long[] micros = new long[records.size()];
+		while (records.next()) {
+			if (records.turn() == 1) {
+				games++;
+			}
+			planets += records.NumPlanets();
+			fleets += records.NumFleets();
+			// record number in the low bits, to list the slowest turns
+			micros[records.index()] = (long) records.micros() << 32 | records.index();
+		}
+		int n = records.size();
+		System.out.println(String.format("%d turns of %d games, %.1f planets and %.1f fleets per turn", n, games,
+				n == 0 ? 0. : (double) planets / n, n == 0 ? 0. : (double) fleets / n));
+		if (records.skipped() > 0) {
+			System.out.println(records.skipped() + " bytes of torn records skipped");
+		}
+		if (n == 0) {
+			return;
+		}
+		Arrays.sort(micros);
+		System.out.println(String.format("turn time: p50 %d us, p99 %d us, max %d us", micros[n / 2] >>> 32,
+				micros[Math.min(n - 1, n * 99 / 100)] >>> 32, micros[n - 1] >>> 32));
+		System.out.println("slowest turns:");
+		for (int i = n - 1; i >= Math.max(0, n - 5); i--) {
+			records.seek((int) micros[i]);
+			System.out.println(String.format("  record %d: turn %d, %d planets, %d fleets, %d us", records.index(),
+					records.turn(), records.NumPlanets(), records.NumFleets(), records.micros()));
+		}
+	}
+
+	static void replay(GameRecords records, String name) {
+		Bot bot = Bot.of(name);
+		// the bots' debug output is not what we replay for
+		PrintStream out = System.out;
+		PrintStream err = System.err;
+		PrintStream devNull = new PrintStream(new OutputStream() {
+			public void write(int b) {
+			}
+			public void write(byte[] b, int off, int len) {
+			}
+		});
+		System.setOut(devNull);
+		System.setErr(devNull);
+		int changed = 0;
+		long start = System.nanoTime();
+		try {
+			while (records.next()) {
+				EnginePlanetWars pw = records.planetWars();
+				bot.DoTurn(pw);
+				if (!records.sameOrders(pw.Orders())) {
+					changed++;
+				}
+			}
+		} finally {
+			System.setOut(out);
+			System.setErr(err);
+		}
+		double seconds = (System.nanoTime() - start) / 1e9;
+		System.out.println(String.format("%d positions in %.1f s (%.0f per minute), orders changed on %d",
+				records.size(), seconds, seconds == 0 ? 0. : records.size() * 60 / seconds, changed));
+	}
+}
@@ -0,0 +1,285 @@
+import java.io.*;
+import java.nio.charset.*;
+import java.util.*;
+
+/** Buffered reader for the engine's game-state protocol.
+ * Reads stdin in large blocks and keeps the raw bytes of the turn, so the PlanetWars object the
+ * bots' DoTurn expects is built from a single String per turn instead of the line += (char) c /
+ * message += line concatenation. With a GameRecorder the "P x y owner ships growth" and
+ * "F owner ships source dest total remaining" lines are also parsed straight from the bytes into
+ * reusable arrays, without building a String per line, and every turn is handed to the recorder.
+ * PlanetWars only takes a String, so without a recorder the arrays are left empty rather than
+ * parsing every turn twice.
+ *
+ * Usage in a bot's main():
+ *
+ *     GameRecorder recorder = GameRecorder.open("MyBot"); // null unless recording
+ *     GameStateReader reader = new GameStateReader(System.in, recorder);
+ *     while (reader.readTurn()) {
+ *         PlanetWars pw = reader.planetWars();
+ *         ...
+ *     }
+ */
+
+public class GameStateReader {
+
+	private final InputStream in;
+	private final byte[] buffer = new byte[1 << 16];
+	private int position = 0;
+	private int limit = 0;
+
+	// raw bytes of the current turn, without the "go" line
+	private byte[] message = new byte[1 << 12];
+	private int messageLength = 0;
+
+	public int numPlanets = 0;
+	public double[] planetX = new double[64];
+	public double[] planetY = new double[64];
+	public int[] planetOwner = new int[64];
+	public int[] planetShips = new int[64];
+	public int[] planetGrowth = new int[64];
+
+	public int numFleets = 0;
+	public int[] fleetOwner = new int[64];
+	public int[] fleetShips = new int[64];
+	public int[] fleetSource = new int[64];
+	public int[] fleetDest = new int[64];
+	public int[] fleetTotalTrip = new int[64];
+	public int[] fleetTurnsRemaining = new int[64];
+
+	// the lines are parsed into the arrays (for the recorder)
+	private final boolean parse;
+
+	// current line while parsing
+	private int cursor;
+	private int lineEnd;
+
+	// gets every turn that is read, null if the bot doesn't record
+	private final GameRecorder recorder;
+
+	public GameStateReader(InputStream in) {
+		this(in, null);
+	}
+
+	public GameStateReader(InputStream in, GameRecorder recorder) {
+		this.in = in;
+		this.recorder = recorder;
+		parse = recorder != null;
+	}
+
+	/**
+	 * Reads the next game state, up to and including its "go" line.
+	 * @return false when the input has ended
+	 */
+	public boolean readTurn() throws IOException {
+		numPlanets = 0;
+		numFleets = 0;
+		messageLength = 0;
+		while (true) {
+			int start = messageLength;
+			if (!readLine()) {
+				return false;
+			}
+			cursor = start;
+			lineEnd = messageLength;
+			if (isGo()) {
+				messageLength = start;
+				if (recorder != null) {
+					recorder.beginTurn(this);
+				}
+				return true;
+			}
+			if (parse) {
+				parseLine();
+			}
+			appendToMessage((byte) '\n');
+		}
+	}
+
+	/**
+	 * The current turn as a PlanetWars object, as the bots' DoTurn expects it.
+	 */
+	public PlanetWars planetWars() {
+		return new PlanetWars(new String(message, 0, messageLength, StandardCharsets.US_ASCII));
+	}
+
+	/**
+	 * Appends the next line (without its line break) to the message buffer.
+	 * @return false if the input ended before a line break
+	 */
+	private boolean readLine() throws IOException {
+		while (true) {
+			if (position == limit) {
+				limit = in.read(buffer, 0, buffer.length);
+				position = 0;
+				if (limit <= 0) {
+					limit = 0;
+					return false;
+				}
+			}
+			int i = position;
+			while (i < limit && buffer[i] != '\n') {
+				i++;
+			}
+			int length = i - position;
+			if (messageLength + length + 1 > message.length) {
+				message = Arrays.copyOf(message, Math.max(2 * message.length, messageLength + length + 1));
+			}
+			System.arraycopy(buffer, position, message, messageLength, length);
+			messageLength += length;
+			if (i < limit) {
+				position = i + 1;
+				// tolerate \r\n line endings
+				if (messageLength > 0 && message[messageLength - 1] == '\r') {
+					messageLength--;
+				}
+				return true;
+			}
+			position = limit;
+		}
+	}
+
+	private void appendToMessage(byte b) {
+		if (messageLength == message.length) {
+			message = Arrays.copyOf(message, 2 * message.length);
+		}
+		message[messageLength++] = b;
+	}
+
+	private boolean isGo() {
+		int i = cursor;
+		while (i < lineEnd && message[i] == ' ') {
+			i++;
+		}
+		return lineEnd - i >= 2 && message[i] == 'g' && message[i + 1] == 'o'
+				&& (lineEnd - i == 2 || message[i + 2] == ' ');
+	}
+
+	private void parseLine() {
+		// strip comments
+		for (int i = cursor; i < lineEnd; i++) {
+			if (message[i] == '#') {
+				lineEnd = i;
+				break;
+			}
+		}
+		skipSpaces();
+		if (cursor >= lineEnd) {
+			return;
+		}
+		byte type = message[cursor++];
+		if (type == 'P') {
+			ensurePlanetCapacity();
+			int i = numPlanets++;
+			planetX[i] = nextDouble();
+			planetY[i] = nextDouble();
+			planetOwner[i] = nextInt();
+			planetShips[i] = nextInt();
+			planetGrowth[i] = nextInt();
+		} else if (type == 'F') {
+			ensureFleetCapacity();
+			int i = numFleets++;
+			fleetOwner[i] = nextInt();
+			fleetShips[i] = nextInt();
+			fleetSource[i] = nextInt();
+			fleetDest[i] = nextInt();
+			fleetTotalTrip[i] = nextInt();
+			fleetTurnsRemaining[i] = nextInt();
+		}
+	}
+
+	private void skipSpaces() {
+		while (cursor < lineEnd && (message[cursor] == ' ' || message[cursor] == '\t')) {
+			cursor++;
+		}
+	}
+
+	private int nextInt() {
+		skipSpaces();
+		boolean negative = false;
+		if (cursor < lineEnd && message[cursor] == '-') {
+			negative = true;
+			cursor++;
+		}
+		int value = 0;
+		while (cursor < lineEnd && message[cursor] >= '0' && message[cursor] <= '9') {
+			value = value * 10 + (message[cursor++] - '0');
+		}
+		return negative ? -value : value;
+	}
+
+	private static final double[] POWERS_OF_TEN = new double[23];
+	static {
+		POWERS_OF_TEN[0] = 1.;
+		for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+			POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10.;
+		}
+	}
+
+	/**
+	 * Parses a decimal number. Numbers with at most 15 significant digits and no exponent (all
+	 * coordinates the engine sends) are converted exactly like Double.parseDouble does; anything
+	 * else falls back to Double.parseDouble.
+	 */
+	private double nextDouble() {
+		skipSpaces();
+		int start = cursor;
+		boolean negative = false;
+		if (cursor < lineEnd && (message[cursor] == '-' || message[cursor] == '+')) {
+			negative = message[cursor] == '-';
+			cursor++;
+		}
+		long mantissa = 0;
+		int digits = 0;
+		int decimals = 0;
+		boolean point = false;
+		while (cursor < lineEnd) {
+			byte c = message[cursor];
+			if (c >= '0' && c <= '9') {
+				mantissa = mantissa * 10 + (c - '0');
+				if (mantissa != 0) {
+					digits++;
+				}
+				if (point) {
+					decimals++;
+				}
+			} else if (c == '.' && !point) {
+				point = true;
+			} else {
+				break;
+			}
+			cursor++;
+		}
+		if (cursor < lineEnd && message[cursor] != ' ' && message[cursor] != '\t' || digits > 15 || decimals >= POWERS_OF_TEN.length) {
+			while (cursor < lineEnd && message[cursor] != ' ' && message[cursor] != '\t') {
+				cursor++;
+			}
+			return Double.parseDouble(new String(message, start, cursor - start, StandardCharsets.US_ASCII));
+		}
+		double value = mantissa / POWERS_OF_TEN[decimals];
+		return negative ? -value : value;
+	}
+
+	private void ensurePlanetCapacity() {
+		if (numPlanets == planetX.length) {
+			int size = 2 * numPlanets;
+			planetX = Arrays.copyOf(planetX, size);
+			planetY = Arrays.copyOf(planetY, size);
+			planetOwner = Arrays.copyOf(planetOwner, size);
+			planetShips = Arrays.copyOf(planetShips, size);
+			planetGrowth = Arrays.copyOf(planetGrowth, size);
+		}
+	}
+
+	private void ensureFleetCapacity() {
+		if (numFleets == fleetOwner.length) {
+			int size = 2 * numFleets;
+			fleetOwner = Arrays.copyOf(fleetOwner, size);
+			fleetShips = Arrays.copyOf(fleetShips, size);
+			fleetSource = Arrays.copyOf(fleetSource, size);
+			fleetDest = Arrays.copyOf(fleetDest, size);
+			fleetTotalTrip = Arrays.copyOf(fleetTotalTrip, size);
+			fleetTurnsRemaining = Arrays.copyOf(fleetTurnsRemaining, size);
+		}
+	}
+}
@@ -0,0 +1,103 @@
+import java.util.*;
+
+/** Per-game geometry cache: planet coordinates, the distance between every pair of planets and,
+ * for every planet, all other planets sorted by distance.
+ * Planets never move during a game, so this is built once on the first turn (MapGeometry.of) and
+ * shared by every simulation and search afterwards. Distances are rounded up like
+ * PlanetWars.Distance, so they are the number of turns a fleet travels.
+ */
+
+public class MapGeometry {
+
+	final int size;
+	final double[] x;
+	final double[] y;
+	// distance[source * size + dest]
+	final int[] distance;
+	// nearest[p] lists all other planets, closest first (ties by planet id)
+	final int[][] nearest;
+
+	private static volatile MapGeometry current;
+
+	/**
+	 * Returns the geometry of the map pw is played on, built on the first call of the game.
+	 */
+	public static MapGeometry of(PlanetWars pw) {
+		MapGeometry geometry = current;
+		if (geometry != null && geometry.matches(pw)) {
+			return geometry;
+		}
+		int n = pw.NumPlanets();
+		double[] x = new double[n];
+		double[] y = new double[n];
+		for (Planet p : pw.Planets()) {
+			x[p.PlanetID()] = p.X();
+			y[p.PlanetID()] = p.Y();
+		}
+		geometry = new MapGeometry(x, y);
+		current = geometry;
+		return geometry;
+	}
+
+	public MapGeometry(double[] x, double[] y) {
+		size = x.length;
+		this.x = x;
+		this.y = y;
+		distance = new int[size * size];
+		for (int i = 0; i < size; i++) {
+			for (int j = 0; j < size; j++) {
+				double dx = x[i] - x[j];
+				double dy = y[i] - y[j];
+				distance[i * size + j] = (int) Math.ceil(Math.sqrt(dx * dx + dy * dy));
+			}
+		}
+		nearest = new int[size][];
+		Integer[] order = new Integer[size];
+		for (int i = 0; i < size; i++) {
+			final int from = i;
+			for (int j = 0; j < size; j++) {
+				order[j] = j;
+			}
+			Arrays.sort(order, new Comparator<Integer>() {
+				public int compare(Integer a, Integer b) {
+					int d = distance[from * size + a] - distance[from * size + b];
+					return d != 0 ? d : a - b;
+				}
+			});
+			nearest[i] = new int[size - 1];
+			int k = 0;
+			for (int j = 0; j < size; j++) {
+				if (order[j] != i) {
+					nearest[i][k++] = order[j];
+				}
+			}
+		}
+	}
+
+	public int NumPlanets() {
+		return size;
+	}
+
+	public int Distance(int sourcePlanet, int destinationPlanet) {
+		return distance[sourcePlanet * size + destinationPlanet];
+	}
+
+	/**
+	 * All planets other than planetID, closest first. The array is shared, don't modify it.
+	 */
+	public int[] nearest(int planetID) {
+		return nearest[planetID];
+	}
+
+	private boolean matches(PlanetWars pw) {
+		if (pw.NumPlanets() != size) {
+			return false;
+		}
+		for (Planet p : pw.Planets()) {
+			if (p.X() != x[p.PlanetID()] || p.Y() != y[p.PlanetID()]) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
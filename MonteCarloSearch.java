@@ -0,0 +1,369 @@
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/** Time-bounded Monte Carlo tree search (UCT), an alternative to AlphaBetaSearch.
+ * It uses the same move model: we attack from one of our planets to a planet that is not ours,
+ * ships grow, the opponent attacks, ships grow again. Instead of searching every reply to a fixed
+ * depth, every iteration walks down the tree picking the child with the best upper confidence
+ * bound, adds one new move (best-first from the MoveGenerator, and with progressive widening only
+ * as many as the node's visits justify), and plays the game on from there with the BullyBot strategy for both
+ * players (strongest planet attacks the weakest planet it doesn't own; a random move with
+ * probability search.rolloutEpsilon). The outcome after search.rolloutDepth plies, 1 for a win,
+ * 0 for a loss, in between by ship and growth share, is backed up the path. Promising moves get
+ * most of the iterations and hopeless ones are soon left alone.
+ *
+ * With more than one thread (search.threads) the threads share one tree, each with its own
+ * copy of the position. A thread passing through a node adds a virtual loss to it, so the
+ * other threads are steered towards other moves until the result is backed up.
+ *
+ * The bots choose between the two searches with the system property search.mode (alphabeta or
+ * mcts), or per bot with <bot class>.search.mode.
+ */
+
+public class MonteCarloSearch {
+
+	public long timeLimitMillis = Long.getLong("search.timeLimit", 700);
+
+	/** Number of plies (one move and growth per player) played out after leaving the tree. */
+	public int rolloutDepth = Integer.getInteger("search.rolloutDepth", 10);
+
+	/** Probability of a random move instead of the BullyBot move in a rollout. */
+	public double rolloutEpsilon = Double.parseDouble(System.getProperty("search.rolloutEpsilon", "0.2"));
+
+	/** How both players move in a rollout. */
+	public OpponentModel rolloutPolicy = OpponentModel.BULLY;
+
+	/**
+	 * Progressive widening (system property search.widening): a node with n visits has at most
+	 * widening * sqrt(n) children, taken best-first from the MoveGenerator. 0 expands every move.
+	 */
+	public double widening = Double.parseDouble(System.getProperty("search.widening", "2"));
+
+	/** Orders the moves of every node best-first; its width caps the moves per node. */
+	public final MoveGenerator generator = new MoveGenerator();
+
+	/** UCT exploration constant. */
+	public double exploration = Double.parseDouble(System.getProperty("search.exploration", "1.4"));
+
+	/** Only consider enemy planets as destinations at the root (JorroZorRoBot's behaviour). */
+	public boolean rootEnemyTargetsOnly = false;
+
+	/** Number of threads growing the tree; 1 searches on the calling thread. */
+	public int threads = SearchThreads.THREADS;
+
+	/** Print a one-line summary of every search to System.err (system property search.verbose). */
+	public boolean verbose = Boolean.getBoolean("search.verbose");
+
+	public int bestSource = -1;
+	public int bestDest = -1;
+	/** Average outcome of the best move for player 1, in thousandths. */
+	public int bestScore;
+	public long iterations;
+	public int bestVisits;
+
+	private static final int VIRTUAL_LOSS = 1;
+
+	private long deadline;
+	private long seed = 1;
+
+	/**
+	 * True if the given bot should search with MonteCarloSearch rather than AlphaBetaSearch.
+	 */
+	public static boolean isSelected(String bot) {
+		return "mcts".equals(System.getProperty(bot + ".search.mode", System.getProperty("search.mode", "alphabeta")));
+	}
+
+	/**
+	 * A position in the tree, with the player to move. The move that led here is source -> dest
+	 * (-1 for the root and for a pass). Fields are guarded by the node's lock.
+	 */
+	static final class Node {
+		final int source;
+		final int dest;
+		final int player;
+		int[] moves;
+		int untried;
+		Node[] children;
+		int numChildren;
+		int visits;
+		// sum of outcomes for player 1
+		double reward;
+
+		Node(int source, int dest, int player) {
+			this.source = source;
+			this.dest = dest;
+			this.player = player;
+		}
+	}
+
+	/**
+	 * Searches the given position until the time limit is reached.
+	 * @param The position to search, it is not changed
+	 * @return true if a move for player 1 was found
+	 */
+	public boolean search(SimulationState root) {
+		SearchEvents.Search event = new SearchEvents.Search();
+		event.begin();
+		deadline = System.nanoTime() + timeLimitMillis * 1000000L;
+		bestSource = -1;
+		bestDest = -1;
+		bestScore = 0;
+		bestVisits = 0;
+		iterations = 0;
+
+		final Node tree = new Node(-1, -1, 1);
+		tree.moves = generateMoves(generator, root, 1, rootEnemyTargetsOnly, 0);
+		if (tree.moves.length == 0) {
+			return false;
+		}
+		tree.untried = tree.moves.length / 2;
+		tree.children = new Node[tree.untried];
+
+		if (threads > 1) {
+			final AtomicLong total = new AtomicLong();
+			List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+			for (int i = 0; i < threads; i++) {
+				final SimulationState state = root.copy();
+				final Random random = new Random(seed++);
+				final MoveGenerator moves = new MoveGenerator();
+				moves.configure(generator);
+				tasks.add(new Callable<Void>() {
+					public Void call() {
+						total.addAndGet(grow(tree, state, random, moves));
+						return null;
+					}
+				});
+			}
+			SearchThreads.invokeAll(tasks);
+			iterations = total.get();
+		} else {
+			iterations = grow(tree, root, new Random(seed++), generator);
+		}
+
+		for (int i = 0; i < tree.numChildren; i++) {
+			Node child = tree.children[i];
+			if (child.visits > bestVisits) {
+				bestVisits = child.visits;
+				bestSource = child.source;
+				bestDest = child.dest;
+				bestScore = (int) Math.round(1000. * child.reward / child.visits);
+			}
+		}
+
+		if (event.shouldCommit()) {
+			event.depth = 1;
+			event.nodes = iterations;
+			event.threads = threads;
+			event.source = bestSource;
+			event.dest = bestDest;
+			event.score = bestScore;
+			event.commit();
+		}
+		return bestSource >= 0;
+	}
+
+	/**
+	 * Runs iterations on the shared tree until the deadline.
+	 * @return the number of iterations
+	 */
+	private long grow(Node tree, SimulationState state, Random random, MoveGenerator generator) {
+		long count = 0;
+		Node[] path = new Node[64];
+		do {
+			int mark = state.mark();
+			int length = 0;
+			Node node = tree;
+			path[length++] = node;
+			while (true) {
+				Node next;
+				boolean expanded = false;
+				synchronized (node) {
+					node.visits += VIRTUAL_LOSS;
+					node.reward += VIRTUAL_LOSS * loss(node);
+					if (node.moves == null) {
+						node.moves = generateMoves(generator, state, node.player, false, 1);
+						node.untried = node.moves.length / 2;
+						node.children = new Node[Math.max(1, node.untried)];
+						if (node.untried == 0) {
+							// no moves: the player passes
+							node.children[0] = new Node(-1, -1, 3 - node.player);
+							node.numChildren = 1;
+						}
+					}
+					if (node.untried > 0 && (widening <= 0 || node.numChildren < widening * Math.sqrt(node.visits))) {
+						int i = node.moves.length / 2 - node.untried--;
+						next = new Node(node.moves[2 * i], node.moves[2 * i + 1], 3 - node.player);
+						node.children[node.numChildren++] = next;
+						expanded = true;
+					} else {
+						next = select(node);
+					}
+				}
+				play(state, node.player, next.source, next.dest);
+				if (length == path.length) {
+					path = Arrays.copyOf(path, 2 * length);
+				}
+				path[length++] = next;
+				node = next;
+				if (expanded || terminal(state) >= 0) {
+					break;
+				}
+			}
+
+			double outcome = rollout(state, node.player, random);
+			for (int i = 0; i < length; i++) {
+				Node n = path[i];
+				// take back the virtual loss (the leaf has none) and add the real outcome
+				int virtualLoss = i < length - 1 ? VIRTUAL_LOSS : 0;
+				synchronized (n) {
+					n.visits += 1 - virtualLoss;
+					n.reward += outcome - virtualLoss * loss(n);
+				}
+			}
+			state.undo(mark);
+			count++;
+		} while ((count & 15) != 0 || System.nanoTime() < deadline);
+		return count;
+	}
+
+	/**
+	 * The outcome for player 1 that counts as a loss for the player that moved into node.
+	 */
+	private static double loss(Node node) {
+		// the player that moved into the node is the opponent of the player to move there
+		return node.player == 1 ? 1. : 0.;
+	}
+
+	/**
+	 * The child with the highest upper confidence bound for the player to move at node.
+	 */
+	private Node select(Node node) {
+		double logVisits = Math.log(Math.max(1, node.visits));
+		Node best = null;
+		double bestValue = Double.NEGATIVE_INFINITY;
+		for (int i = 0; i < node.numChildren; i++) {
+			Node child = node.children[i];
+			double mean;
+			int visits;
+			synchronized (child) {
+				visits = child.visits;
+				mean = visits == 0 ? 0.5 : child.reward / visits;
+			}
+			if (node.player == 2) {
+				mean = 1. - mean;
+			}
+			double value = mean + exploration * Math.sqrt(logVisits / Math.max(1, visits));
+			if (value > bestValue) {
+				bestValue = value;
+				best = child;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Plays a move (or a pass if source is -1) followed by growth. A move of player 2 is one of
+	 * any opponent, made by the owner of its source.
+	 */
+	private static void play(SimulationState state, int player, int source, int dest) {
+		if (source >= 0) {
+			state.simulateAttack(player == 1 ? 1 : state.Owner(source), source, dest);
+		}
+		state.simulateGrowth();
+	}
+
+	/**
+	 * Plays on with the rollout policy for both players, starting with player.
+	 * @return the outcome for player 1, between 0 and 1
+	 */
+	private double rollout(SimulationState state, int player, Random random) {
+		int[] move = new int[2];
+		OpponentReplies opponents = null;
+		for (int ply = 0; ply < 2 * rolloutDepth; ply++) {
+			if (terminal(state) >= 0) {
+				break;
+			}
+			int source;
+			int dest;
+			if (random.nextDouble() < rolloutEpsilon) {
+				source = randomPlanet(state, player, true, random);
+				dest = randomPlanet(state, player, false, random);
+			} else if (player == 2 && state.numPlayers() > 2) {
+				// every opponent plays the policy's order for it
+				if (opponents == null) {
+					opponents = new OpponentReplies(rolloutPolicy);
+				}
+				opponents.choose(state);
+				opponents.play(state);
+				source = -1;
+				dest = -1;
+			} else if (rolloutPolicy.move(state, player, move)) {
+				source = move[0];
+				dest = move[1];
+			} else {
+				source = -1;
+				dest = -1;
+			}
+			play(state, player, source >= 0 && dest >= 0 ? source : -1, dest);
+			player = 3 - player;
+		}
+		double terminal = terminal(state);
+		return terminal >= 0 ? terminal : evaluate(state);
+	}
+
+	/**
+	 * 1 if player 1 has won, 0 if player 2 has won or nobody has planets left, -1 if the game goes on.
+	 */
+	private static double terminal(SimulationState state) {
+		boolean mine = state.numMine() > 0;
+		boolean enemy = state.numEnemy() > 0;
+		if (mine && enemy) {
+			return -1;
+		}
+		return mine ? 1. : 0.;
+	}
+
+	/**
+	 * Share of ships and growth owned by player 1, squeezed into 0.05..0.95 so that real wins
+	 * and losses always count more.
+	 */
+	protected double evaluate(SimulationState state) {
+		double mine = 1 + state.totalShips(1) + state.totalGrowth(1);
+		int rival = state.rival();
+		double enemy = 1 + state.playerShips(rival) + state.playerGrowth(rival);
+		return 0.05 + 0.9 * mine / (mine + enemy);
+	}
+
+	/**
+	 * A random planet the player owns with more than one ship (sources), or a random planet it
+	 * doesn't own, -1 if there is none.
+	 */
+	private static int randomPlanet(SimulationState state, int player, boolean owned, Random random) {
+		int n = state.NumPlanets();
+		int start = random.nextInt(n);
+		for (int k = 0; k < n; k++) {
+			int planet = (start + k) % n;
+			int owner = state.Owner(planet);
+			boolean ours = player == 1 ? owner == 1 : owner >= 2;
+			if (owned ? ours && state.NumShips(planet) > 1 : !ours) {
+				return planet;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * All moves of the player as source, dest pairs, best first (level 0 is the root).
+	 */
+	private static int[] generateMoves(MoveGenerator generator, SimulationState state, int player, boolean enemyTargetsOnly, int level) {
+		int count = generator.generate(state, player, enemyTargetsOnly, level);
+		generator.sort(level, count);
+		return Arrays.copyOf(generator.moves(level), 2 * count);
+	}
+
+	public String report() {
+		return String.format("mcts: %d iterations, move %d -> %d, %d visits, score %d",
+				iterations, bestSource, bestDest, bestVisits, bestScore);
+	}
+}
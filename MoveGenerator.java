@@ -0,0 +1,274 @@
+import java.util.*;
+
+/** Candidate generator for the searches: lists a player's orders best-first.
+ * Every order (one of the player's planets with more than one ship against a planet it doesn't
+ * own) is scored with the bots' calculateHeuristic, half the source's ships minus the
+ * destination's ships plus growthFactor (4) times its growth rate (zeroGrowthScore, -500, for
+ * planets without growth), minus distanceWeight per turn of travel. Orders are returned highest score first, ties in planet
+ * order, so a pruning search tries the promising orders first and gets its cutoffs early.
+ *
+ * The branching factor can be capped: rootWidth orders at the root and width orders at every
+ * deeper node (0 is full width), for example full width at the root and the best 8 below it.
+ * With nearestTargets set, only the closest nearestTargets destinations of every source are
+ * considered at all.
+ *
+ * Moves are written to a buffer per search level that is reused from node to node, so
+ * generating moves doesn't allocate, and they are only put in order as the search asks for them
+ * (select): the best few are picked one at a time, and the rest is only sorted if the node isn't
+ * cut off by then. A generator is not thread-safe; every search thread needs its own.
+ *
+ * In a game with more than two players, the orders of player 2 are those of all opponents
+ * together, each attacking the planets its source's owner doesn't own: a search that plays one of
+ * them at its opponent nodes lets the opponent that hurts us most reply (best-reply search), so
+ * its branching grows with the number of opponents' planets rather than exponentially with the
+ * number of players.
+ */
+
+public class MoveGenerator {
+
+	/** Score subtracted per turn of travel (system property search.distanceWeight). */
+	public int distanceWeight = Integer.getInteger("search.distanceWeight", 1);
+
+	/** Score per unit of the destination's growth rate (system property search.growthFactor). */
+	public int growthFactor = Integer.getInteger("search.growthFactor", 4);
+
+	/** Score of a destination without growth (system property search.zeroGrowthScore). */
+	public int zeroGrowthScore = Integer.getInteger("search.zeroGrowthScore", -500);
+
+	/** Maximum number of orders at the root (system property search.rootWidth), 0 for all. */
+	public int rootWidth = Integer.getInteger("search.rootWidth", 0);
+
+	/** Maximum number of orders below the root (system property search.width), 0 for all. */
+	public int width = Integer.getInteger("search.width", 0);
+
+	/**
+	 * Only consider the closest nearestTargets destinations for every source planet (system
+	 * property search.nearestTargets); 0 considers all of them.
+	 */
+	public int nearestTargets = Integer.getInteger("search.nearestTargets", 0);
+
+	// per search level: the moves as source, dest pairs and their sort keys
+	private int[][] moves = new int[16][];
+	private long[][] keys = new long[16][];
+	// moves[level][0..2 * ordered[level]) are in their final order
+	private int[] ordered = new int[16];
+
+	// moves picked one by one before the rest of a node is sorted
+	private static final int SELECT_LIMIT = 4;
+
+	/**
+	 * Copies the settings of another generator.
+	 */
+	public void configure(MoveGenerator generator) {
+		distanceWeight = generator.distanceWeight;
+		growthFactor = generator.growthFactor;
+		zeroGrowthScore = generator.zeroGrowthScore;
+		rootWidth = generator.rootWidth;
+		width = generator.width;
+		nearestTargets = generator.nearestTargets;
+	}
+
+	/**
+	 * Generates the orders of the player into moves(level) as source, dest pairs. They are not in
+	 * order yet: call select(level, i, count) before using move i, or sort(level, count).
+	 * Level 0 is the root; a search uses a different level for every node on its current path.
+	 * @return the number of orders
+	 */
+	public int generate(SimulationState state, int player, boolean enemyTargetsOnly, int level) {
+		reserve(level, 0);
+		int count = 0;
+		for (int s = nextSource(state, player, 0); s >= 0; s = nextSource(state, player, s + 1)) {
+			int attacker = player == 1 ? 1 : state.Owner(s);
+			if (nearestTargets > 0) {
+				int[] nearest = state.Geometry().nearest(s);
+				int found = 0;
+				for (int j = 0; j < nearest.length && found < nearestTargets; j++) {
+					int d = nearest[j];
+					if (isTarget(state, attacker, enemyTargetsOnly, d)) {
+						count = add(state, level, count, s, d);
+						found++;
+					}
+				}
+			} else {
+				for (int d = nextTarget(state, attacker, enemyTargetsOnly, 0); d >= 0; d = nextTarget(state, attacker, enemyTargetsOnly, d + 1)) {
+					count = add(state, level, count, s, d);
+				}
+			}
+		}
+		ordered[level] = 0;
+		int max = level == 0 ? rootWidth : width;
+		if (max > 0 && count > max) {
+			sort(level, count);
+			count = max;
+		}
+		return count;
+	}
+
+	/**
+	 * The orders generated last for the level.
+	 */
+	public int[] moves(int level) {
+		return moves[level];
+	}
+
+	/**
+	 * Puts the best of the moves i..count-1 at position i. Moves are only picked one by one for
+	 * the first few, since most nodes are cut off after one or two moves; after that the rest is
+	 * sorted at once.
+	 */
+	public void select(int level, int i, int count) {
+		if (i < ordered[level]) {
+			return;
+		}
+		if (i >= SELECT_LIMIT) {
+			sortFrom(level, i, count);
+			return;
+		}
+		long[] k = keys[level];
+		int best = i;
+		for (int j = i + 1; j < count; j++) {
+			if (k[j] < k[best]) {
+				best = j;
+			}
+		}
+		swap(level, i, best);
+		ordered[level] = i + 1;
+	}
+
+	/**
+	 * Puts all moves of the level in order.
+	 */
+	public void sort(int level, int count) {
+		sortFrom(level, ordered[level], count);
+	}
+
+	/**
+	 * Moves the given order to the front (for example the best move of an earlier search),
+	 * the others keep being ordered by score.
+	 * @return false if the order isn't among the moves
+	 */
+	public boolean moveToFront(int level, int count, int source, int dest) {
+		int[] m = moves[level];
+		for (int i = 0; i < count; i++) {
+			if (m[2 * i] == source && m[2 * i + 1] == dest) {
+				if (i >= ordered[level]) {
+					swap(level, 0, i);
+				} else {
+					// keep the ordered prefix in order behind the new first move
+					long key = keys[level][i];
+					System.arraycopy(keys[level], 0, keys[level], 1, i);
+					System.arraycopy(m, 0, m, 2, 2 * i);
+					keys[level][0] = key;
+					m[0] = source;
+					m[1] = dest;
+				}
+				ordered[level] = Math.max(1, ordered[level]);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * calculateHeuristic of the bots: worth of sending half of source's ships to dest.
+	 */
+	public static int heuristic(SimulationState state, int source, int dest) {
+		if (state.GrowthRate(dest) == 0) {
+			return -500;
+		}
+		return state.NumShips(source) / 2 - state.NumShips(dest) + state.GrowthRate(dest) * 4;
+	}
+
+	/**
+	 * heuristic() with this generator's weights, minus distanceWeight per turn of travel.
+	 */
+	public int score(SimulationState state, int source, int dest) {
+		int growth = state.GrowthRate(dest);
+		int score = growth == 0 ? zeroGrowthScore
+				: state.NumShips(source) / 2 - state.NumShips(dest) + growth * growthFactor;
+		return score - distanceWeight * state.Distance(source, dest);
+	}
+
+	private int add(SimulationState state, int level, int count, int source, int dest) {
+		reserve(level, count + 1);
+		moves[level][2 * count] = source;
+		moves[level][2 * count + 1] = dest;
+		// highest score first: sort ascending on the negated score, ties by source and dest
+		keys[level][count] = ((long) -score(state, source, dest) << 32) | (source << 16) | dest;
+		return count + 1;
+	}
+
+	private void sortFrom(int level, int from, int count) {
+		if (from >= count) {
+			return;
+		}
+		long[] k = keys[level];
+		int[] m = moves[level];
+		Arrays.sort(k, from, count);
+		for (int i = from; i < count; i++) {
+			m[2 * i] = (int) (k[i] >>> 16) & 0xffff;
+			m[2 * i + 1] = (int) k[i] & 0xffff;
+		}
+		ordered[level] = count;
+	}
+
+	private void swap(int level, int i, int j) {
+		long[] k = keys[level];
+		int[] m = moves[level];
+		long key = k[i];
+		k[i] = k[j];
+		k[j] = key;
+		int source = m[2 * i];
+		int dest = m[2 * i + 1];
+		m[2 * i] = m[2 * j];
+		m[2 * i + 1] = m[2 * j + 1];
+		m[2 * j] = source;
+		m[2 * j + 1] = dest;
+	}
+
+	private void reserve(int level, int count) {
+		if (level >= moves.length) {
+			int size = Math.max(2 * moves.length, level + 1);
+			moves = Arrays.copyOf(moves, size);
+			keys = Arrays.copyOf(keys, size);
+			ordered = Arrays.copyOf(ordered, size);
+		}
+		if (moves[level] == null || keys[level].length < count) {
+			int size = Math.max(64, moves[level] == null ? count : Math.max(2 * keys[level].length, count));
+			moves[level] = moves[level] == null ? new int[2 * size] : Arrays.copyOf(moves[level], 2 * size);
+			keys[level] = keys[level] == null ? new long[size] : Arrays.copyOf(keys[level], size);
+		}
+	}
+
+	private static boolean isTarget(SimulationState state, int player, boolean enemyTargetsOnly, int planet) {
+		int owner = state.Owner(planet);
+		if (player == 1) {
+			return enemyTargetsOnly ? owner >= 2 : owner != 1;
+		}
+		return enemyTargetsOnly ? owner != 0 && owner != player : owner != player;
+	}
+
+	/** Next planet of the player with id >= from that has more than one ship, -1 if none. */
+	private static int nextSource(SimulationState state, int player, int from) {
+		int s = player == 1 ? state.nextMine(from) : state.nextEnemy(from);
+		while (s >= 0 && state.NumShips(s) <= 1) {
+			s = player == 1 ? state.nextMine(s + 1) : state.nextEnemy(s + 1);
+		}
+		return s;
+	}
+
+	/** Next planet with id >= from that the player (an opponent: the owner of the source) may attack, -1 if none. */
+	private static int nextTarget(SimulationState state, int player, boolean enemyTargetsOnly, int from) {
+		if (player == 1) {
+			return enemyTargetsOnly ? state.nextEnemy(from) : state.nextNotMine(from);
+		}
+		if (state.numPlayers() == 2) {
+			return enemyTargetsOnly ? state.nextMine(from) : state.nextNotEnemy(from);
+		}
+		int d = state.nextNotOwned(player, from);
+		while (enemyTargetsOnly && d >= 0 && state.Owner(d) == 0) {
+			d = state.nextNotOwned(player, d + 1);
+		}
+		return d;
+	}
+}
@@ -0,0 +1,193 @@
+/** How a simulated player picks its order: the opponent's reply in the bots' lookahead and the
+ * moves of MonteCarloSearch's rollouts. A model only chooses the order and leaves the position
+ * as it was; the caller plays it (see SimulatedPlanetWars.simulateEnemyBotAttack).
+ *
+ * Player 1 is us and player 2 the opponent; a model for player 2 attacks from the enemy planets
+ * to the planets the enemy doesn't own, and the other way round for player 1. In a game with more
+ * than two players every opponent is modelled on its own: a model for player p attacks from p's
+ * planets to the planets p doesn't own, and OpponentReplies asks it for the order of each.
+ */
+
+public interface OpponentModel {
+
+	/**
+	 * Picks the order the player would give in the position.
+	 * @param move receives the source and destination planet
+	 * @return false if the player gives no order
+	 */
+	boolean move(SimulationState state, int player, int[] move);
+
+	/** Never gives an order. */
+	OpponentModel NONE = new OpponentModel() {
+		public boolean move(SimulationState state, int player, int[] move) {
+			return false;
+		}
+	};
+
+	/** BullyBot: from the player's strongest planet to the weakest planet it doesn't own. */
+	OpponentModel BULLY = new OpponentModel() {
+		public boolean move(SimulationState state, int player, int[] move) {
+			int source = -1;
+			int sourceShips = 1;
+			for (int planet = next(state, player, true, 0); planet >= 0; planet = next(state, player, true, planet + 1)) {
+				if (state.NumShips(planet) > sourceShips) {
+					sourceShips = state.NumShips(planet);
+					source = planet;
+				}
+			}
+			int dest = -1;
+			int destShips = Integer.MAX_VALUE;
+			for (int planet = next(state, player, false, 0); planet >= 0; planet = next(state, player, false, planet + 1)) {
+				if (state.NumShips(planet) < destShips) {
+					destShips = state.NumShips(planet);
+					dest = planet;
+				}
+			}
+			move[0] = source;
+			move[1] = dest;
+			return source >= 0 && dest >= 0;
+		}
+	};
+
+	/**
+	 * SimpleBot.txt: the order with the best MoveGenerator.heuristic (growth versus ships), on ties
+	 * preferring planets of the other player, then farther planets.
+	 */
+	OpponentModel SIMPLE_BOT = new OpponentModel() {
+		public boolean move(SimulationState state, int player, int[] move) {
+			int source = -1;
+			int dest = -1;
+			int score = -1000;
+			for (int s = next(state, player, true, 0); s >= 0; s = next(state, player, true, s + 1)) {
+				if (state.NumShips(s) <= 1)
+					continue;
+				for (int d = next(state, player, false, 0); d >= 0; d = next(state, player, false, d + 1)) {
+					int orderScore = MoveGenerator.heuristic(state, s, d);
+					int owner = state.Owner(d);
+					if (orderScore > score) {
+						score = orderScore;
+						source = s;
+						dest = d;
+					} else if (orderScore == score && owner != 0 && owner != player) {
+						source = s;
+						dest = d;
+					} else if (orderScore == score && source >= 0 && state.Distance(source, d) > state.Distance(source, dest)) {
+						source = s;
+						dest = d;
+					}
+				}
+			}
+			move[0] = source;
+			move[1] = dest;
+			return source >= 0 && dest >= 0;
+		}
+	};
+
+	/**
+	 * The order that is best for the player by the evaluator one growth step later: the lowest
+	 * evaluation for an opponent, the highest for player 1. The first such order in planet order is
+	 * taken (InceptionBot31's simulateEnemyBotAttack). With more than two players every opponent
+	 * plays against us alone (paranoid).
+	 */
+	public static class Minimizing implements OpponentModel {
+
+		final Evaluator evaluator;
+
+		public Minimizing(Evaluator evaluator) {
+			this.evaluator = evaluator;
+		}
+
+		public boolean move(SimulationState state, int player, int[] move) {
+			int sign = player == 1 ? -1 : 1;
+			int source = -1;
+			int dest = -1;
+			long score = Long.MAX_VALUE;
+			for (int s = next(state, player, true, 0); s >= 0; s = next(state, player, true, s + 1)) {
+				if (state.NumShips(s) <= 1)
+					continue;
+				for (int d = next(state, player, false, 0); d >= 0; d = next(state, player, false, d + 1)) {
+					int mark = state.mark();
+					state.simulateAttack(player, s, d);
+					state.simulateGrowth();
+					long value = sign * (long) evaluator.evaluate(state);
+					state.undo(mark);
+					if (value < score) {
+						score = value;
+						source = s;
+						dest = d;
+					}
+				}
+			}
+			move[0] = source;
+			move[1] = dest;
+			return source >= 0;
+		}
+	}
+
+	/**
+	 * Max-n style: the order that is best for the player itself one growth step later, its ships
+	 * and growth rate minus those of its strongest rival (us included), rather than the worst for
+	 * us. In a game with more than two players the opponents then also fight each other. The first
+	 * such order in planet order is taken.
+	 */
+	public static class MaxN implements OpponentModel {
+
+		public boolean move(SimulationState state, int player, int[] move) {
+			int source = -1;
+			int dest = -1;
+			int score = Integer.MIN_VALUE;
+			for (int s = next(state, player, true, 0); s >= 0; s = next(state, player, true, s + 1)) {
+				if (state.NumShips(s) <= 1)
+					continue;
+				for (int d = next(state, player, false, 0); d >= 0; d = next(state, player, false, d + 1)) {
+					int mark = state.mark();
+					state.simulateAttack(player, s, d);
+					state.simulateGrowth();
+					int value = advantage(state, player);
+					state.undo(mark);
+					if (value > score) {
+						score = value;
+						source = s;
+						dest = d;
+					}
+				}
+			}
+			move[0] = source;
+			move[1] = dest;
+			return source >= 0;
+		}
+
+		/** Ships and growth rate of the player minus those of its strongest rival. */
+		static int advantage(SimulationState state, int player) {
+			int rival = 0;
+			for (int p = 1; p <= state.numPlayers(); p++) {
+				if (p != player) {
+					rival = Math.max(rival, state.playerShips(p) + state.playerGrowth(p));
+				}
+			}
+			return state.playerShips(player) + state.playerGrowth(player) - rival;
+		}
+	}
+
+	/**
+	 * The opponent model a bot's simulations use, by the system property search.opponent (or
+	 * <bot>.search.opponent): paranoid (the default, Minimizing with the evaluator) or maxn (MaxN).
+	 */
+	static OpponentModel of(String bot, Evaluator evaluator) {
+		String model = System.getProperty(bot + ".search.opponent", System.getProperty("search.opponent", "paranoid"));
+		if (model.equals("maxn")) {
+			return new MaxN();
+		}
+		if (!model.equals("paranoid")) {
+			throw new IllegalArgumentException("unknown opponent model " + model + ", expected paranoid or maxn");
+		}
+		return new Minimizing(evaluator);
+	}
+
+	/**
+	 * Next planet with id >= from that the player owns (owned) or doesn't own, -1 if none.
+	 */
+	static int next(SimulationState state, int player, boolean owned, int from) {
+		return owned ? state.nextOwned(player, from) : state.nextNotOwned(player, from);
+	}
+}
@@ -0,0 +1,109 @@
+import java.util.*;
+import java.util.concurrent.*;
+
+/** The orders of all opponents for one simulated turn, for games with more than two players.
+ * Every opponent that still owns a planet is asked for its order by the OpponentModel, all on the
+ * same position, and play() then carries them out one after the other, so the cost of a turn
+ * grows linearly with the number of players. With more than one search thread (search.threads)
+ * the orders are chosen concurrently, each on its own copy of the position; called from a worker
+ * of the search pool (a parallel search) they are chosen sequentially.
+ *
+ * In a two-player game this is just the reply of player 2. Not thread-safe; every search thread
+ * needs its own.
+ */
+
+public class OpponentReplies {
+
+	final OpponentModel model;
+
+	/** Number of threads choosing the orders; 1 chooses them sequentially. */
+	public int threads = SearchThreads.THREADS;
+
+	// player, source and dest of every order of the turn
+	private int[] orders = new int[3 * 4];
+	private int count;
+	// per player: the order as (source + 1) << 16 | dest + 1, NO_ORDER if it has none
+	private int[] packed = new int[8];
+	private final int[] move = new int[2];
+
+	private static final int NO_ORDER = 0;
+
+	public OpponentReplies(OpponentModel model) {
+		this.model = model;
+	}
+
+	/**
+	 * Chooses the order of every opponent in the position, leaving it as it was.
+	 * @return the number of orders
+	 */
+	public int choose(final SimulationState state) {
+		int n = state.numPlayers();
+		if (packed.length <= n) {
+			packed = new int[n + 1];
+		}
+		if (orders.length < 3 * (n - 1)) {
+			orders = new int[3 * (n - 1)];
+		}
+		int playing = 0;
+		for (int p = 2; p <= n; p++) {
+			if (state.playerPlanets(p) > 0) {
+				playing++;
+			}
+		}
+		if (playing > 1 && threads > 1 && !ForkJoinTask.inForkJoinPool()) {
+			List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+			for (int p = 2; p <= n; p++) {
+				packed[p] = NO_ORDER;
+				if (state.playerPlanets(p) == 0) {
+					continue;
+				}
+				final int player = p;
+				final SimulationState copy = state.copy();
+				tasks.add(new Callable<Void>() {
+					public Void call() {
+						int[] order = new int[2];
+						packed[player] = model.move(copy, player, order) ? pack(order[0], order[1]) : NO_ORDER;
+						return null;
+					}
+				});
+			}
+			SearchThreads.invokeAll(tasks);
+		} else {
+			for (int p = 2; p <= n; p++) {
+				packed[p] = state.playerPlanets(p) > 0 && model.move(state, p, move) ? pack(move[0], move[1]) : NO_ORDER;
+			}
+		}
+		count = 0;
+		for (int p = 2; p <= n; p++) {
+			if (packed[p] != NO_ORDER) {
+				orders[3 * count] = p;
+				orders[3 * count + 1] = (packed[p] >>> 16) - 1;
+				orders[3 * count + 2] = (packed[p] & 0xffff) - 1;
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Plays the chosen orders on the state, in player order.
+	 */
+	public void play(SimulationState state) {
+		for (int i = 0; i < count; i++) {
+			state.simulateAttack(orders[3 * i], orders[3 * i + 1], orders[3 * i + 2]);
+		}
+	}
+
+	public int count() {
+		return count;
+	}
+
+	/** The player, source and dest of every chosen order. */
+	public int[] orders() {
+		return Arrays.copyOf(orders, 3 * count);
+	}
+
+	private static int pack(int source, int dest) {
+		return source < 0 || dest < 0 ? NO_ORDER : (source + 1) << 16 | dest + 1;
+	}
+}
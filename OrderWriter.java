@@ -0,0 +1,67 @@
+import java.io.*;
+
+/** Batched stdout for the bots' orders.
+ * PlanetWars.IssueOrder and FinishTurn flush System.out after every line, so each order is a
+ * separate write to the engine's pipe. OrderWriter replaces System.out with a buffered stream
+ * that ignores those flushes and only writes the turn out once its "go" line is printed.
+ * Call OrderWriter.install() at the start of main(), before any order is issued. Given a
+ * GameRecorder, the orders of each turn are recorded, and the turn is written to the recorder
+ * after it has been sent.
+ */
+
+public class OrderWriter extends PrintStream {
+
+	// records the orders, null if the bot doesn't record
+	private final GameRecorder recorder;
+
+	public OrderWriter(OutputStream out) {
+		this(out, null);
+	}
+
+	public OrderWriter(OutputStream out, GameRecorder recorder) {
+		super(new BufferedOutputStream(out, 1 << 12), false);
+		this.recorder = recorder;
+	}
+
+	public static void install() {
+		install(null);
+	}
+
+	public static void install(GameRecorder recorder) {
+		System.setOut(new OrderWriter(new FileOutputStream(FileDescriptor.out), recorder));
+	}
+
+	/**
+	 * Does nothing, the buffer is flushed when the turn ends.
+	 */
+	public void flush() {
+	}
+
+	public void println(String line) {
+		super.println(line);
+		if ("go".equals(line)) {
+			super.flush();
+			if (recorder != null) {
+				recorder.endTurn();
+			}
+		} else if (recorder != null) {
+			recordOrder(line);
+		}
+	}
+
+	/**
+	 * Records a "source dest" line as PlanetWars.IssueOrder prints it; other lines without a space
+	 * are ignored, and numbers that don't parse are reported by the recorder.
+	 */
+	private void recordOrder(String line) {
+		int space = line.indexOf(' ');
+		if (space < 0) {
+			return;
+		}
+		try {
+			recorder.order(Integer.parseInt(line.substring(0, space)), Integer.parseInt(line.substring(space + 1)));
+		} catch (NumberFormatException e) {
+			recorder.badOrder(line);
+		}
+	}
+}
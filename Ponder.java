@@ -0,0 +1,136 @@
+/** Keeps an alpha-beta bot searching while it waits for the next game state.
+ * Between FinishTurn and the next turn the bot is blocked reading System.in. Instead, right after
+ * its order is issued, the next position is predicted: our order and the opponent's expected
+ * reply (AlphaBetaSearch.expectedReply) are launched from the current planets and fleets, and one
+ * turn is played with FleetSimulation, which follows the engine's rules. A background thread
+ * searches that position without a time limit until the next turn starts.
+ *
+ * Then finish() stops the background search at once. If the real position is the predicted one
+ * and the pondered search got deeper than the turn's own search, its move is played instead.
+ * Either way the pondered entries stay in the transposition table shared with the bot's search,
+ * so positions that were already searched are cut off straight away.
+ *
+ * Pondering is off by default; switch it on with the system property search.ponder=true (or
+ * <bot>.search.ponder). The background search runs on one thread, leaving the other cores to the
+ * engine and the opponent.
+ */
+
+public class Ponder {
+
+	public long hits;
+	public long misses;
+
+	// the search running in the background, made by the bot's search so it evaluates the same way
+	private AlphaBetaSearch search;
+	private Thread thread;
+	private long predicted;
+	private boolean hit;
+
+	/**
+	 * True if the given bot should ponder.
+	 */
+	public static boolean isEnabled(String bot) {
+		return Boolean.parseBoolean(System.getProperty(bot + ".search.ponder", System.getProperty("search.ponder", "false")));
+	}
+
+	/**
+	 * Starts searching the position expected after the move the bot just played.
+	 * @param pw the game state of the turn that was just played
+	 * @param played the bot's search, its best move being the order that was issued
+	 */
+	public void start(PlanetWars pw, AlphaBetaSearch played) {
+		stop();
+		if (played.bestSource < 0) {
+			return;
+		}
+		FleetSimulation sim = new FleetSimulation(pw);
+		sim.launch(played.bestSource, played.bestDest, sim.NumShips(played.bestSource) / 2);
+		int[] reply = new int[2];
+		if (played.expectedReply(reply)) {
+			sim.launch(reply[0], reply[1], sim.NumShips(reply[0]) / 2);
+		}
+		sim.advance(1);
+		final SimulationState position = new SimulationState(sim);
+		predicted = position.hash();
+
+		if (search == null) {
+			search = played.createWorker();
+		}
+		search.generator.configure(played.generator);
+		search.evaluator = played.evaluator;
+		search.table = played.table;
+		search.rootEnemyTargetsOnly = played.rootEnemyTargetsOnly;
+		search.maxDepth = played.maxDepth;
+		search.timeLimitMillis = 3600 * 1000L;
+		search.threads = 1;
+		search.stopped = false;
+		thread = new Thread(new Runnable() {
+			public void run() {
+				search.search(position);
+			}
+		}, "ponder");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Stops the background search before the bot searches the real position.
+	 * @return true if root is the position that was pondered
+	 */
+	public boolean finish(SimulationState root) {
+		if (thread == null) {
+			hit = false;
+			return false;
+		}
+		stop();
+		hit = root.hash() == predicted;
+		if (hit) {
+			hits++;
+		} else {
+			misses++;
+		}
+		return hit;
+	}
+
+	/**
+	 * After a hit, replaces the result of the bot's search by the pondered one if that is deeper.
+	 * @return true if the pondered result was taken
+	 */
+	public boolean reuse(AlphaBetaSearch played) {
+		if (!hit || search.bestSource < 0 || search.depthReached <= played.depthReached) {
+			return false;
+		}
+		played.bestSource = search.bestSource;
+		played.bestDest = search.bestDest;
+		played.bestScore = search.bestScore;
+		played.depthReached = search.depthReached;
+		return true;
+	}
+
+	public String report() {
+		String line = String.format("ponder: %d hits, %d misses", hits, misses);
+		if (hit) {
+			line += String.format(", pondered depth %d, %d nodes", search.depthReached, search.nodes);
+		}
+		return line;
+	}
+
+	private void stop() {
+		if (thread == null) {
+			return;
+		}
+		search.stopped = true;
+		boolean interrupted = false;
+		while (thread.isAlive()) {
+			try {
+				thread.join();
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		thread = null;
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,330 @@
+import java.io.*;
+import java.util.*;
+
+/** Performance regression check of the bots' DoTurn against a checked-in baseline.
+ * JorroZorRoBot, InceptionBot and InceptionBot31 play every position of the corpus (bench/states,
+ * or a GameRecorder file), and JorroZorRoBot with its beam search as well (JorroZorRoBot:beam,
+ * which plays the opponents' replies of free-for-all positions through OpponentReplies). Each
+ * turn is compared with its line in the baseline (bench/baseline.txt):
+ *
+ * - the order must be the same;
+ * - the work counters must not grow by more than regression.workTolerance (default 10%): nodes
+ *   searched, positions evaluated and replies asked of the opponent model (InceptionBot's
+ *   simulated orders count as its nodes and evaluations);
+ * - the time of the turn must stay below regression.timeFactor (default 2.5) times the baseline
+ *   plus regression.timeSlack microseconds (default 20000).
+ *
+ * The counters are deterministic: the alpha-beta bots search to a fixed depth (regression.depth,
+ * default 2) and the beam search 3 plies deep and 8 positions wide, without a time limit, on one
+ * thread, with their transposition table cleared before every turn and without pondering,
+ * warm-up or endgame solver. The time is the fastest of regression.runs turns (default 3), after
+ * one untimed pass over the corpus, and is only a generous ceiling as it depends on the machine. Every position whose order or counters changed is printed with the baseline and new
+ * values; the exit status is 1 if any check failed.
+ *
+ * After a deliberate change of the bots, -update writes the new results as the baseline.
+ *
+ * Usage: java Regression [-update] [corpus directory or record file] [baseline file]
+ */
+
+public class Regression {
+
+	static final int DEPTH = Integer.getInteger("regression.depth", 2);
+	static final int RUNS = Integer.getInteger("regression.runs", 3);
+	static final double WORK_TOLERANCE = Double.parseDouble(System.getProperty("regression.workTolerance", "0.1"));
+	static final double TIME_FACTOR = Double.parseDouble(System.getProperty("regression.timeFactor", "2.5"));
+	static final long TIME_SLACK_MICROS = Long.getLong("regression.timeSlack", 20000);
+
+	static final String[] BOTS = { "JorroZorRoBot", "InceptionBot", "InceptionBot31", "JorroZorRoBot:beam" };
+	static final String[] COUNTERS = { "nodes", "evaluations", "replies" };
+
+	/** One bot's turn on one position. */
+	static class Turn {
+		final String bot;
+		final String position;
+		int source = -1;
+		int dest = -1;
+		final long[] work = new long[COUNTERS.length];
+		long micros = Long.MAX_VALUE;
+
+		Turn(String bot, String position) {
+			this.bot = bot;
+			this.position = position;
+		}
+
+		String key() {
+			return bot + " " + position;
+		}
+
+		String order() {
+			return source < 0 ? "none" : source + "->" + dest;
+		}
+
+		String format() {
+			StringBuilder line = new StringBuilder();
+			line.append(bot).append(' ').append(position).append(' ').append(source).append(' ').append(dest);
+			for (long w : work) {
+				line.append(' ').append(w);
+			}
+			return line.append(' ').append(micros).toString();
+		}
+
+		static Turn parse(String line) {
+			String[] fields = line.trim().split("\\s+");
+			if (fields.length != 5 + COUNTERS.length) {
+				throw new IllegalArgumentException("bad baseline line: " + line);
+			}
+			Turn turn = new Turn(fields[0], fields[1]);
+			turn.source = Integer.parseInt(fields[2]);
+			turn.dest = Integer.parseInt(fields[3]);
+			for (int i = 0; i < COUNTERS.length; i++) {
+				turn.work[i] = Long.parseLong(fields[4 + i]);
+			}
+			turn.micros = Long.parseLong(fields[4 + COUNTERS.length]);
+			return turn;
+		}
+	}
+
+	public static void main(String[] args) throws IOException {
+		boolean update = false;
+		List<String> files = new ArrayList<String>();
+		for (String arg : args) {
+			if (arg.equals("-update")) {
+				update = true;
+			} else {
+				files.add(arg);
+			}
+		}
+		File corpus = new File(files.size() > 0 ? files.get(0) : "bench/states");
+		File baselineFile = new File(files.size() > 1 ? files.get(1) : "bench/baseline.txt");
+
+		Map<String, String> positions = positions(corpus);
+		if (positions.isEmpty()) {
+			System.err.println("no game states in " + corpus);
+			System.exit(2);
+		}
+		setUp();
+
+		// the bots print their orders and debug output
+		PrintStream out = System.out;
+		PrintStream err = System.err;
+		PrintStream devNull = new PrintStream(new OutputStream() {
+			public void write(int b) {
+			}
+			public void write(byte[] b, int off, int len) {
+			}
+		});
+		System.setOut(devNull);
+		System.setErr(devNull);
+		List<Turn> turns = new ArrayList<Turn>();
+		try {
+			for (String bot : BOTS) {
+				for (Map.Entry<String, String> position : positions.entrySet()) {
+					play(new Turn(bot, position.getKey()), position.getValue());
+				}
+			}
+			for (String bot : BOTS) {
+				for (Map.Entry<String, String> position : positions.entrySet()) {
+					Turn turn = new Turn(bot, position.getKey());
+					for (int run = 0; run < RUNS; run++) {
+						play(turn, position.getValue());
+					}
+					turns.add(turn);
+				}
+			}
+		} finally {
+			System.setOut(out);
+			System.setErr(err);
+		}
+
+		if (update) {
+			writeBaseline(baselineFile, turns);
+			System.out.println("wrote " + turns.size() + " turns to " + baselineFile);
+			return;
+		}
+		if (!baselineFile.exists()) {
+			System.out.println("no baseline " + baselineFile + ", run with -update to create it");
+			System.exit(2);
+		}
+		Map<String, Turn> baseline = readBaseline(baselineFile);
+		int failed = 0;
+		for (Turn turn : turns) {
+			if (!check(turn, baseline.get(turn.key()))) {
+				failed++;
+			}
+		}
+		System.out.println(String.format("%d turns, %d failed", turns.size(), failed));
+		if (failed > 0) {
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Makes the bots' turns deterministic: fixed depth, one thread, no pondering, warm-up or endgame
+	 * solver.
+	 */
+	static void setUp() {
+		for (SearchDriver driver : new SearchDriver[] { JorroZorRoBot.driver, InceptionBot31.driver }) {
+			driver.monteCarlo = false;
+			driver.beam = false;
+			driver.ponder = null;
+			driver.warmup = null;
+			driver.endgame.maxPlanets = 0;
+			driver.search.maxDepth = DEPTH;
+			driver.search.timeLimitMillis = 3600 * 1000L;
+			driver.search.threads = 1;
+			driver.search.verbose = false;
+			driver.beamSearch.depth = 3;
+			driver.beamSearch.beamWidth = 8;
+			driver.beamSearch.timeLimitMillis = 3600 * 1000L;
+			driver.beamSearch.threads = 1;
+			driver.beamSearch.verbose = false;
+		}
+		InceptionBot.search.threads = 1;
+	}
+
+	/**
+	 * Plays the turn's bot on the game state, keeping the fastest time.
+	 */
+	static void play(Turn turn, String gameState) {
+		EnginePlanetWars pw = new EnginePlanetWars(gameState);
+		SearchDriver driver = null;
+		boolean beam = turn.bot.endsWith(":beam");
+		if (turn.bot.startsWith("JorroZorRoBot")) {
+			driver = JorroZorRoBot.driver;
+		} else if (turn.bot.equals("InceptionBot31")) {
+			driver = InceptionBot31.driver;
+		}
+		if (driver != null) {
+			driver.table.clear();
+		}
+		// Bot.of sets the drivers' mode, alpha-beta unless the name has a suffix
+		Bot bot = Bot.of(driver != null && !beam ? turn.bot + ":alphabeta" : turn.bot);
+		long start = System.nanoTime();
+		bot.DoTurn(pw);
+		turn.micros = Math.min(turn.micros, (System.nanoTime() - start) / 1000L);
+
+		int[] orders = pw.Orders();
+		turn.source = orders.length > 0 ? orders[0] : -1;
+		turn.dest = orders.length > 0 ? orders[1] : -1;
+		if (beam) {
+			// every position of the beam is ranked by an evaluation
+			turn.work[0] = driver.beamSearch.nodes;
+			turn.work[1] = driver.beamSearch.nodes;
+			turn.work[2] = 0;
+		} else if (driver != null) {
+			turn.work[0] = driver.search.nodes;
+			turn.work[1] = driver.search.evaluations;
+			turn.work[2] = 0;
+		} else {
+			turn.work[0] = InceptionBot.search.candidates;
+			turn.work[1] = InceptionBot.search.candidates;
+			turn.work[2] = InceptionBot.search.replies;
+		}
+	}
+
+	/**
+	 * Compares a turn with its baseline and prints the differences.
+	 * @return false if a check failed
+	 */
+	static boolean check(Turn turn, Turn base) {
+		if (base == null) {
+			System.out.println("FAIL " + turn.key() + ": not in the baseline");
+			return false;
+		}
+		List<String> lines = new ArrayList<String>();
+		boolean ok = true;
+		if (turn.source != base.source || turn.dest != base.dest) {
+			lines.add(String.format("    %-12s %12s -> %-12s order changed", "order", base.order(), turn.order()));
+			ok = false;
+		}
+		for (int i = 0; i < COUNTERS.length; i++) {
+			if (turn.work[i] == base.work[i]) {
+				continue;
+			}
+			boolean over = turn.work[i] > base.work[i] * (1 + WORK_TOLERANCE);
+			lines.add(String.format("    %-12s %12d -> %-12d %s%s", COUNTERS[i], base.work[i], turn.work[i],
+					change(base.work[i], turn.work[i]), over ? "  over budget" : ""));
+			ok &= !over;
+		}
+		long ceiling = (long) (base.micros * TIME_FACTOR) + TIME_SLACK_MICROS;
+		if (turn.micros > ceiling) {
+			lines.add(String.format("    %-12s %12d -> %-12d %s  over %d us", "us", base.micros, turn.micros,
+					change(base.micros, turn.micros), ceiling));
+			ok = false;
+		}
+		if (!lines.isEmpty()) {
+			System.out.println((ok ? "changed " : "FAIL ") + turn.key());
+			for (String line : lines) {
+				System.out.println(line);
+			}
+		}
+		return ok;
+	}
+
+	static String change(long base, long now) {
+		return base == 0 ? "(new)" : String.format(Locale.ROOT, "(%+.0f%%)", 100. * (now - base) / base);
+	}
+
+	/**
+	 * The game states of the corpus by name: the files of a directory, or the turns of a record
+	 * file.
+	 */
+	static Map<String, String> positions(File corpus) throws IOException {
+		Map<String, String> positions = new LinkedHashMap<String, String>();
+		if (corpus.isDirectory()) {
+			File[] files = corpus.listFiles();
+			Arrays.sort(files);
+			for (File file : files) {
+				positions.put(file.getName().replace(".txt", ""), Benchmark.read(file));
+			}
+		} else if (corpus.exists()) {
+			GameRecords records = new GameRecords(corpus);
+			while (records.next()) {
+				positions.put("record-" + records.index(), records.gameState());
+			}
+		}
+		return positions;
+	}
+
+	static Map<String, Turn> readBaseline(File file) throws IOException {
+		Map<String, Turn> baseline = new HashMap<String, Turn>();
+		BufferedReader reader = new BufferedReader(new FileReader(file));
+		try {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (line.startsWith("#")) {
+					if (line.startsWith("# depth ") && Integer.parseInt(line.substring(8).trim()) != DEPTH) {
+						throw new IOException(file + " was written at " + line.substring(2) + ", not depth " + DEPTH);
+					}
+					continue;
+				}
+				if (line.trim().isEmpty()) {
+					continue;
+				}
+				Turn turn = Turn.parse(line);
+				baseline.put(turn.key(), turn);
+			}
+		} finally {
+			reader.close();
+		}
+		return baseline;
+	}
+
+	static void writeBaseline(File file, List<Turn> turns) throws IOException {
+		PrintWriter writer = new PrintWriter(new FileWriter(file));
+		try {
+			writer.println("# Regression baseline, written by java Regression -update");
+			writer.println("# depth " + DEPTH);
+			writer.print("# bot position source dest");
+			for (String counter : COUNTERS) {
+				writer.print(" " + counter);
+			}
+			writer.println(" micros");
+			for (Turn turn : turns) {
+				writer.println(turn.format());
+			}
+		} finally {
+			writer.close();
+		}
+	}
+}
@@ -0,0 +1,161 @@
+import java.util.*;
+import java.util.concurrent.*;
+
+/** One-ply search against a modeled opponent (InceptionBot's search).
+ * Every order of ours, from one of our planets with more than one ship to a planet we don't own,
+ * is simulated with growth, the opponent's reply by its OpponentModel and growth again, and the
+ * position is scored by the evaluator. The best order is returned, the first one in planet order
+ * on ties.
+ *
+ * With more than one thread (system property search.threads) the orders are split into one
+ * contiguous range per thread, each simulated on its own SimulatedPlanetWars. The scores only
+ * depend on the order, so the result is the same as sequentially.
+ *
+ * Every search is a JDK Flight Recorder event (see SearchEvents); reply and evaluation times are
+ * only measured while it is recorded.
+ */
+
+public class ReplySearch {
+
+	public Evaluator evaluator;
+
+	public OpponentModel opponent;
+
+	/** Number of threads scoring the orders in parallel; 1 scores them sequentially. */
+	public int threads = SearchThreads.THREADS;
+
+	public int bestSource = -1;
+	public int bestDest = -1;
+	public int bestScore;
+	/** Number of orders scored by the last search. */
+	public int candidates;
+	/** Number of replies the opponent model was asked for by the last search. */
+	public long replies;
+
+	public ReplySearch(Evaluator evaluator, OpponentModel opponent) {
+		this.evaluator = evaluator;
+		this.opponent = opponent;
+	}
+
+	/**
+	 * Scores every order in the position.
+	 * @return true if an order was found
+	 */
+	public boolean search(PlanetWars pw) {
+		SearchEvents.Search event = new SearchEvents.Search();
+		event.begin();
+		// enemy reply and evaluation time (only measured while the search is recorded), replies
+		boolean timing = event.isEnabled();
+		long[] stats = new long[3];
+
+		SimulatedPlanetWars simpw = new SimulatedPlanetWars(pw, opponent);
+		SimulationState state = simpw.state;
+		int[] moves = new int[16];
+		int count = 0;
+		for (int s = state.nextMine(0); s >= 0; s = state.nextMine(s + 1)) {
+			if (state.NumShips(s) <= 1)
+				continue;
+			for (int d = state.nextNotMine(0); d >= 0; d = state.nextNotMine(d + 1)) {
+				if (2 * count + 2 > moves.length) {
+					moves = Arrays.copyOf(moves, 2 * moves.length);
+				}
+				moves[2 * count] = s;
+				moves[2 * count + 1] = d;
+				count++;
+			}
+		}
+
+		int[] scores = new int[count];
+		if (threads > 1) {
+			scoreInParallel(pw, moves, count, scores, stats, timing);
+		} else {
+			score(simpw, moves, scores, 0, count, stats, timing);
+		}
+
+		candidates = count;
+		replies = stats[2];
+		bestSource = -1;
+		bestDest = -1;
+		bestScore = -1000;
+		for (int i = 0; i < count; i++) {
+			if (scores[i] > bestScore) {
+				bestScore = scores[i];
+				bestSource = moves[2 * i];
+				bestDest = moves[2 * i + 1];
+			}
+		}
+
+		if (event.shouldCommit()) {
+			event.depth = 1;
+			event.nodes = count;
+			event.threads = threads;
+			event.enemyReplyTime = stats[0];
+			event.evaluationTime = stats[1];
+			event.enemyReplies = stats[2];
+			event.source = bestSource;
+			event.dest = bestDest;
+			event.score = bestScore;
+			event.commit();
+		}
+		return bestSource >= 0;
+	}
+
+	/**
+	 * Simulates the orders from..to-1 (attack, growth, enemy reply, growth) on simpw and stores
+	 * the evaluated score of each one in scores. The number of enemy replies is added to stats[2],
+	 * and if timing, the time spent in the enemy reply and in the evaluation to stats[0] and
+	 * stats[1].
+	 */
+	private void score(SimulatedPlanetWars simpw, int[] moves, int[] scores, int from, int to, long[] stats, boolean timing) {
+		long replies = simpw.replies;
+		SimulationState state = simpw.state;
+		for (int i = from; i < to; i++) {
+			int mark = state.mark();
+			state.simulateAttack(1, moves[2 * i], moves[2 * i + 1]);
+			state.simulateGrowth();
+			if (timing) {
+				long start = System.nanoTime();
+				simpw.simulateEnemyBotAttack(simpw);
+				stats[0] += System.nanoTime() - start;
+			} else {
+				simpw.simulateEnemyBotAttack(simpw);
+			}
+			state.simulateGrowth();
+
+			if (timing) {
+				long start = System.nanoTime();
+				scores[i] = evaluator.evaluate(state);
+				stats[1] += System.nanoTime() - start;
+			} else {
+				scores[i] = evaluator.evaluate(state);
+			}
+			state.undo(mark);
+		}
+		stats[2] += simpw.replies - replies;
+	}
+
+	private void scoreInParallel(PlanetWars pw, final int[] moves, int count, final int[] scores, long[] stats, final boolean timing) {
+		List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+		List<long[]> taskStats = new ArrayList<long[]>();
+		int chunk = (count + threads - 1) / threads;
+		for (int from = 0; from < count; from += chunk) {
+			final SimulatedPlanetWars simpw = new SimulatedPlanetWars(pw, opponent);
+			final int start = from;
+			final int end = Math.min(count, from + chunk);
+			final long[] counts = new long[stats.length];
+			taskStats.add(counts);
+			tasks.add(new Callable<Void>() {
+				public Void call() {
+					score(simpw, moves, scores, start, end, counts, timing);
+					return null;
+				}
+			});
+		}
+		SearchThreads.invokeAll(tasks);
+		for (long[] counts : taskStats) {
+			for (int i = 0; i < stats.length; i++) {
+				stats[i] += counts[i];
+			}
+		}
+	}
+}
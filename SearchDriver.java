@@ -0,0 +1,208 @@
+/** Plays one turn for a searching bot: searches the position with AlphaBetaSearch (or
+ * MonteCarloSearch or BeamSearch, see their isSelected), issues the best order and records the turn
+ * as a JDK Flight Recorder event. In an endgame with few owned planets the EndgameSolver tries to
+ * prove a win first, and the search only runs, in the rest of its time, if it doesn't. The
+ * transposition table is kept from turn to turn, and with pondering enabled (see Ponder) the search
+ * goes on during the opponent's turn.
+ *
+ * JorroZorRoBot and InceptionBot31 are a driver each, configured with their evaluation and root
+ * moves; the system properties of the searches can be set per bot as <bot>.search.mode,
+ * <bot>.search.ponder and <bot>.search.warmup. With a warm-up (see Warmup) the first turn
+ * starts by searching synthetic positions of the map, so the real search runs compiled code.
+ */
+
+public class SearchDriver {
+
+	final String bot;
+
+	public final TranspositionTable table = new TranspositionTable();
+
+	public final AlphaBetaSearch search = new AlphaBetaSearch();
+
+	/** Search with monteCarloSearch instead of search. */
+	public boolean monteCarlo;
+
+	public final MonteCarloSearch monteCarloSearch = new MonteCarloSearch();
+
+	/** Search with beamSearch instead of search. */
+	public boolean beam;
+
+	public final BeamSearch beamSearch = new BeamSearch();
+
+	/** Keeps searching during the opponent's turn, null if off. */
+	public Ponder ponder;
+
+	/** Warms up the JIT before the first search, null if off or done. */
+	public Warmup warmup;
+
+	/** Proves endgames before the search; a maxPlanets of 0 switches it off. */
+	public final EndgameSolver endgame = new EndgameSolver();
+
+	// the last order was proven by the endgame solver
+	private boolean proven;
+
+	public int source = -1;
+	public int dest = -1;
+	public int score;
+
+	/**
+	 * @param bot the bot's class name, for its system properties and events
+	 * @param evaluator scores the positions at the search horizon
+	 * @param rootEnemyTargetsOnly only consider enemy planets as destinations of our order
+	 */
+	public SearchDriver(String bot, Evaluator evaluator, boolean rootEnemyTargetsOnly) {
+		this.bot = bot;
+		monteCarlo = MonteCarloSearch.isSelected(bot);
+		beam = BeamSearch.isSelected(bot);
+		ponder = Ponder.isEnabled(bot) ? new Ponder() : null;
+		warmup = Warmup.of(bot);
+		search.table = table;
+		search.evaluator = evaluator;
+		search.rootEnemyTargetsOnly = rootEnemyTargetsOnly;
+		monteCarloSearch.rootEnemyTargetsOnly = rootEnemyTargetsOnly;
+		beamSearch.evaluator = evaluator;
+		// the reply that is worst for us, as in the alpha-beta search, unless configured otherwise
+		beamSearch.opponent = OpponentModel.of(bot, evaluator);
+		beamSearch.rootEnemyTargetsOnly = rootEnemyTargetsOnly;
+	}
+
+	public void DoTurn(PlanetWars pw) {
+		long[] limits = null;
+		if (warmup != null) {
+			Warmup first = warmup;
+			warmup = null;
+			first.run(this, pw);
+			// the first search only gets what the warm-up left of the turn
+			limits = timeLimits();
+			long left = Math.max(1, first.turnMillis - first.elapsedMillis - Warmup.MARGIN_MILLIS);
+			setTimeLimits(new long[] { Math.min(limits[0], left), Math.min(limits[1], left), Math.min(limits[2], left) });
+		}
+		SearchEvents.Turn event = new SearchEvents.Turn();
+		event.begin();
+
+		search(pw);
+		if (limits != null) {
+			setTimeLimits(limits);
+		}
+		if (source >= 0) {
+			pw.IssueOrder(pw.GetPlanet(source), pw.GetPlanet(dest));
+			if (ponder != null && !monteCarlo && !beam && !proven) {
+				ponder.start(pw, search);
+			}
+		}
+
+		if (event.shouldCommit()) {
+			event.bot = bot;
+			event.planets = pw.NumPlanets();
+			event.fleets = pw.NumFleets();
+			event.source = source;
+			event.dest = dest;
+			event.score = score;
+			event.commit();
+		}
+	}
+
+	/**
+	 * Searches the position with the selected search, setting source, dest and score.
+	 */
+	void search(PlanetWars pw) {
+		source = -1;
+		dest = -1;
+		score = 0;
+		proven = false;
+		long[] limits = null;
+		if (endgame.maxPlanets > 0) {
+			SimulationState root = new SimulationState(pw);
+			if (endgame.applies(root)) {
+				long start = System.nanoTime();
+				boolean won = endgame.solve(root);
+				if (endgame.verbose) {
+					System.err.println(endgame.report());
+				}
+				if (won) {
+					if (ponder != null) {
+						ponder.finish(root);
+					}
+					source = endgame.bestSource;
+					dest = endgame.bestDest;
+					score = AlphaBetaSearch.WIN;
+					proven = true;
+					return;
+				}
+				// the search gets the rest of its time
+				long spent = (System.nanoTime() - start) / 1000000L;
+				limits = timeLimits();
+				setTimeLimits(new long[] { Math.max(1, limits[0] - spent), Math.max(1, limits[1] - spent), Math.max(1, limits[2] - spent) });
+			}
+		}
+		try {
+			searchPosition(pw);
+		} finally {
+			if (limits != null) {
+				setTimeLimits(limits);
+			}
+		}
+	}
+
+	private void searchPosition(PlanetWars pw) {
+		if (monteCarlo) {
+			if (monteCarloSearch.search(new SimulationState(pw))) {
+				source = monteCarloSearch.bestSource;
+				dest = monteCarloSearch.bestDest;
+				score = monteCarloSearch.bestScore;
+			}
+			if (monteCarloSearch.verbose) {
+				System.err.println(monteCarloSearch.report());
+			}
+		} else if (beam) {
+			if (beamSearch.search(new SimulationState(pw))) {
+				source = beamSearch.bestSource;
+				dest = beamSearch.bestDest;
+				score = beamSearch.bestScore;
+			}
+			if (beamSearch.verbose) {
+				System.err.println(beamSearch.report());
+			}
+		} else {
+			SimulationState root = new SimulationState(pw);
+			if (ponder != null) {
+				ponder.finish(root);
+			}
+			boolean found = search.search(root);
+			if (ponder != null) {
+				found |= ponder.reuse(search);
+			}
+			if (found) {
+				source = search.bestSource;
+				dest = search.bestDest;
+				score = search.bestScore;
+			}
+			if (search.verbose) {
+				System.err.println(search.report());
+				if (ponder != null) {
+					System.err.println(ponder.report());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Time limit of the selected search in milliseconds.
+	 */
+	long timeLimitMillis() {
+		return monteCarlo ? monteCarloSearch.timeLimitMillis : beam ? beamSearch.timeLimitMillis : search.timeLimitMillis;
+	}
+
+	/**
+	 * The time limits of the alpha-beta, Monte Carlo and beam searches, for setTimeLimits.
+	 */
+	long[] timeLimits() {
+		return new long[] { search.timeLimitMillis, monteCarloSearch.timeLimitMillis, beamSearch.timeLimitMillis };
+	}
+
+	void setTimeLimits(long[] limits) {
+		search.timeLimitMillis = limits[0];
+		monteCarloSearch.timeLimitMillis = limits[1];
+		beamSearch.timeLimitMillis = limits[2];
+	}
+}
@@ -0,0 +1,104 @@
+import jdk.jfr.*;
+
+/** JDK Flight Recorder events of the bots and their searches.
+ * A Turn event spans every DoTurn, a Search event every alpha-beta search and an Iteration event
+ * every depth of it; a Warmup event spans the JIT warm-up before the first turn. Evaluation and enemy reply times are only measured while the Search event is
+ * enabled, and begin/commit of a disabled event do nothing, so a game played without a recording
+ * pays nothing for them.
+ *
+ * Record a game with java -XX:StartFlightRecording=filename=game.jfr JorroZorRoBot and read it
+ * with JDK Mission Control or jfr print --categories "Planet Wars" game.jfr.
+ */
+
+public class SearchEvents {
+
+	@Name("planetwars.Turn")
+	@Label("Turn")
+	@Category("Planet Wars")
+	@Description("One call of a bot's DoTurn, with the move it played")
+	public static class Turn extends Event {
+		@Label("Bot")
+		String bot;
+		@Label("Planets")
+		int planets;
+		@Label("Fleets")
+		int fleets;
+		@Label("Source")
+		int source = -1;
+		@Label("Destination")
+		int dest = -1;
+		@Label("Score")
+		int score;
+	}
+
+	@Name("planetwars.Search")
+	@Label("Search")
+	@Category("Planet Wars")
+	@Description("One move search, with the work it did")
+	public static class Search extends Event {
+		@Label("Depth Reached")
+		int depth;
+		@Label("Nodes")
+		long nodes;
+		@Label("Threads")
+		int threads;
+		@Label("Transposition Probes")
+		long ttProbes;
+		@Label("Transposition Hits")
+		long ttHits;
+		@Label("Transposition Cutoffs")
+		long ttCutoffs;
+		@Label("Evaluation Time")
+		@Timespan(Timespan.NANOSECONDS)
+		long evaluationTime;
+		@Label("Enemy Reply Time")
+		@Description("Time in simulateEnemyBotAttack; the alpha-beta search has no separate reply step, its replies are the opponent's nodes")
+		@Timespan(Timespan.NANOSECONDS)
+		long enemyReplyTime;
+		@Label("Enemy Replies")
+		@Description("Replies the opponent model was asked for in simulateEnemyBotAttack")
+		long enemyReplies;
+		@Label("Aborted")
+		@Description("The time limit ran out before the maximum depth was reached")
+		boolean aborted;
+		@Label("Source")
+		int source = -1;
+		@Label("Destination")
+		int dest = -1;
+		@Label("Score")
+		int score;
+	}
+
+	@Name("planetwars.Warmup")
+	@Label("Warmup")
+	@Category("Planet Wars")
+	@Description("Searches of synthetic positions before the first turn, to get the search compiled")
+	public static class Warmup extends Event {
+		@Label("Bot")
+		String bot;
+		@Label("Budget")
+		@Timespan(Timespan.MILLISECONDS)
+		long budget;
+		@Label("Positions")
+		int positions;
+	}
+
+	@Name("planetwars.Iteration")
+	@Label("Iteration")
+	@Category("Planet Wars")
+	@Description("One depth of an iterative deepening search")
+	public static class Iteration extends Event {
+		@Label("Depth")
+		int depth;
+		@Label("Nodes")
+		long nodes;
+		@Label("Completed")
+		boolean completed;
+		@Label("Source")
+		int source = -1;
+		@Label("Destination")
+		int dest = -1;
+		@Label("Score")
+		int score;
+	}
+}
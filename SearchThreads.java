@@ -0,0 +1,38 @@
+import java.util.*;
+import java.util.concurrent.*;
+
+/** Worker pool shared by the parallel searches of all bots in this JVM.
+ * The number of threads comes from the system property search.threads; the default of 1 keeps
+ * every search sequential, so several bots can share a host without competing for cores.
+ */
+
+public class SearchThreads {
+
+	public static final int THREADS = Math.max(1, Integer.getInteger("search.threads", 1));
+
+	private static ForkJoinPool pool;
+
+	public static synchronized ForkJoinPool pool() {
+		if (pool == null) {
+			pool = new ForkJoinPool(THREADS);
+		}
+		return pool;
+	}
+
+	/**
+	 * Runs the tasks on the pool and waits for all of them. Exceptions thrown by a task are
+	 * rethrown on the calling thread.
+	 */
+	public static void invokeAll(List<Callable<Void>> tasks) {
+		for (Future<Void> future : pool().invokeAll(tasks)) {
+			try {
+				future.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException(e);
+			} catch (ExecutionException e) {
+				throw new RuntimeException(e.getCause());
+			}
+		}
+	}
+}
@@ -0,0 +1,188 @@
+import java.util.*;
+
+/** The simulation environment of the bots: a SimulationState behind the PlanetWars API, plus the
+ * model of the opponent that simulateEnemyBotAttack plays. The bots used to have a copy of this
+ * class each; they now differ only in the OpponentModel they create it with.
+ *
+ * Attacks and growth are applied in place; mark() and undo(mark) roll them back, so one
+ * simulation can be reused for every candidate move instead of copying it.
+ */
+
+public class SimulatedPlanetWars {
+
+	SimulationState state;
+	final OpponentModel opponent;
+	/** Number of replies the opponent model was asked for. */
+	long replies;
+
+	// reply chosen by the opponent model
+	private final int[] reply = new int[2];
+	// the replies of all opponents in a game with more than two players, created when needed
+	private OpponentReplies opponents;
+
+	public SimulatedPlanetWars(PlanetWars pw, OpponentModel opponent) {
+		state = new SimulationState(pw);
+		this.opponent = opponent;
+	}
+
+	public SimulatedPlanetWars(SimulatedPlanetWars simpw) {
+		state = simpw.state.copy();
+		opponent = simpw.opponent;
+	}
+
+	public void simulateGrowth() {
+		state.simulateGrowth();
+	}
+
+	/**
+	 * Returns a mark for the current simulated position, see undo(int).
+	 */
+	public int mark() {
+		return state.mark();
+	}
+
+	/**
+	 * Reverts the last simulated attack or growth step.
+	 */
+	public void unmake() {
+		state.unmake();
+	}
+
+	/**
+	 * Reverts every simulated attack and growth step made since mark was taken.
+	 */
+	public void undo(int mark) {
+		state.undo(mark);
+	}
+
+	public void simulateAttack(int player, Planet source, Planet dest) {
+		if (source != null && dest != null) {
+			state.simulateAttack(player, source.PlanetID(), dest.PlanetID());
+		}
+	}
+
+	public void simulateAttack(Planet source, Planet dest) {
+		simulateAttack(1, source, dest);
+	}
+
+	public int calculateHeuristic(Planet source, Planet dest) {
+		return MoveGenerator.heuristic(state, source.PlanetID(), dest.PlanetID());
+	}
+
+	public int calculateHeuristic(int source, int dest) {
+		return MoveGenerator.heuristic(state, source, dest);
+	}
+
+	/**
+	 * Plays the opponent's reply to the position of simpw on this simulation. With more than two
+	 * players every opponent replies (OpponentReplies).
+	 */
+	public void simulateEnemyBotAttack(SimulatedPlanetWars simpw) {
+		if (simpw.state.numPlayers() > 2) {
+			if (opponents == null) {
+				opponents = new OpponentReplies(opponent);
+			}
+			for (int p = 2; p <= simpw.state.numPlayers(); p++) {
+				if (simpw.state.playerPlanets(p) > 0) {
+					replies++;
+				}
+			}
+			opponents.choose(simpw.state);
+			opponents.play(state);
+			return;
+		}
+		replies++;
+		if (opponent.move(simpw.state, 2, reply)) {
+			state.simulateAttack(2, reply[0], reply[1]);
+		}
+	}
+
+	public List<Planet> Planets() {
+		List<Planet> r = new ArrayList<Planet>();
+		for (int i = 0; i < state.NumPlanets(); i++) {
+			r.add(state.GetPlanet(i));
+		}
+		return r;
+	}
+
+	public int NumPlanets() {
+		return state.NumPlanets();
+	}
+
+	public Planet GetPlanet(int planetID) {
+		return state.GetPlanet(planetID);
+	}
+
+	public List<Planet> MyPlanets() {
+		List<Planet> r = new ArrayList<Planet>();
+		for (int i = state.nextMine(0); i >= 0; i = state.nextMine(i + 1)) {
+			r.add(state.GetPlanet(i));
+		}
+		return r;
+	}
+
+	public List<Planet> NeutralPlanets() {
+		List<Planet> r = new ArrayList<Planet>();
+		for (int i = state.nextNeutral(0); i >= 0; i = state.nextNeutral(i + 1)) {
+			r.add(state.GetPlanet(i));
+		}
+		return r;
+	}
+
+	public List<Planet> EnemyPlanets() {
+		List<Planet> r = new ArrayList<Planet>();
+		for (int i = state.nextEnemy(0); i >= 0; i = state.nextEnemy(i + 1)) {
+			r.add(state.GetPlanet(i));
+		}
+		return r;
+	}
+
+	public List<Planet> NotMyPlanets() {
+		List<Planet> r = new ArrayList<Planet>();
+		for (int i = state.nextNotMine(0); i >= 0; i = state.nextNotMine(i + 1)) {
+			r.add(state.GetPlanet(i));
+		}
+		return r;
+	}
+
+	public List<Planet> NotEnemyPlanets() {
+		List<Planet> r = new ArrayList<Planet>();
+		for (int i = state.nextNotEnemy(0); i >= 0; i = state.nextNotEnemy(i + 1)) {
+			r.add(state.GetPlanet(i));
+		}
+		return r;
+	}
+
+	public int Distance(int sourcePlanet, int destinationPlanet) {
+		return state.Distance(sourcePlanet, destinationPlanet);
+	}
+
+	public int Winner() {
+		Set<Integer> remainingPlayers = new TreeSet<Integer>();
+		for (int i = 0; i < state.NumPlanets(); i++) {
+			remainingPlayers.add(state.Owner(i));
+		}
+		switch (remainingPlayers.size()) {
+		case 0:
+			return 0;
+		case 1:
+			return ((Integer) remainingPlayers.toArray()[0]).intValue();
+		default:
+			return -1;
+		}
+	}
+
+	public int NumShips(int playerID) {
+		int numShips = 0;
+		for (int i = 0; i < state.NumPlanets(); i++) {
+			if (state.Owner(i) == playerID) {
+				numShips += state.NumShips(i);
+			}
+		}
+		return numShips;
+	}
+
+	public void IssueOrder(Planet source, Planet dest) {
+		simulateAttack(1, source, dest);
+	}
+}
@@ -0,0 +1,524 @@
+import java.util.*;
+
+/** Compact simulation state shared by the bots' lookahead searches.
+ * The mutable part of a position (owner and ship count of every planet) is kept in a single
+ * int array, so copying a node is one array clone. Growth rates and the map geometry never change
+ * during a game and are shared between all copies made from the same position.
+ *
+ * simulateGrowth() and simulateAttack() follow the same rules as the bots' SimulatedPlanetWars,
+ * but mutate the arrays in place instead of allocating new Planet objects. Every move pushes a
+ * small undo record, so a depth-first search can walk the tree on one state: make a move,
+ * recurse, then unmake() it (or undo(mark) to roll back several moves at once).
+ *
+ * The state also keeps a Zobrist-style hash of all (planet, owner, ships) triples that is updated
+ * incrementally by every move, so searches can recognise positions reached by different orders.
+ *
+ * Owner membership is kept as bitsets (mine, enemy, neutral) that are updated whenever an attack
+ * flips an owner, so the search can iterate "my planets", "enemy planets" and their complements
+ * without scanning all planets or allocating lists:
+ *
+ *     for (int p = state.nextMine(0); p >= 0; p = state.nextMine(p + 1)) { ... }
+ *
+ * The ships, growth rates and number of planets of each side are kept as running totals as well,
+ * which every move adjusts for the two planets it changes (growth adds each side's total growth
+ * rate), so evaluations read them in constant time instead of summing over the planets.
+ *
+ * In games with more than two players "enemy" is every opponent together; the same totals are
+ * also kept per player (playerShips, rival), and nextOwned/nextNotOwned iterate the planets of
+ * one player.
+ */
+
+public class SimulationState {
+
+	// cells[2 * id] is the owner, cells[2 * id + 1] the number of ships of planet id
+	int[] cells;
+	final int[] growth;
+	final MapGeometry geometry;
+
+	// owner bitsets in one array: words [0, words) mine, [words, 2 words) enemy, then neutral
+	long[] partitions;
+	final int words;
+
+	private static final int MINE = 0;
+	private static final int ENEMY = 1;
+	private static final int NEUTRAL = 2;
+
+	private static final int UNDO_NONE = 0;
+	private static final int UNDO_GROWTH = 1;
+	private static final int UNDO_ATTACK = 2;
+
+	long hash;
+
+	// running totals per partition: ships at [partition], growth at [3 + partition], planets at [6 + partition]
+	int[] totals = new int[9];
+
+	// highest player id, at least 2
+	final int numPlayers;
+	// the same totals per owner (0 neutral, 1 us, then every opponent): ships at [owner],
+	// growth at [numPlayers + 1 + owner], planets at [2 * (numPlayers + 1) + owner]
+	int[] players;
+
+	// undo records, topmost tag last: GROWTH = [hashLo, hashHi, tag],
+	// ATTACK = [source, sourceShips, dest, destOwner, destShips, hashLo, hashHi, tag]
+	int[] undo = NO_UNDO;
+	int undoSize = 0;
+
+	private static final int[] NO_UNDO = new int[0];
+
+	public SimulationState(PlanetWars pw) {
+		int n = pw.NumPlanets();
+		cells = new int[2 * n];
+		growth = new int[n];
+		geometry = MapGeometry.of(pw);
+		for (Planet p : pw.Planets()) {
+			int id = p.PlanetID();
+			cells[2 * id] = p.Owner();
+			cells[2 * id + 1] = p.NumShips();
+			growth[id] = p.GrowthRate();
+		}
+		numPlayers = highestOwner(cells);
+		players = new int[3 * (numPlayers + 1)];
+		words = (n + 63) >> 6;
+		partitions = new long[3 * words];
+		for (int i = 0; i < n; i++) {
+			hash ^= zobrist(i, cells[2 * i], cells[2 * i + 1]);
+			partitions[partition(cells[2 * i]) * words + (i >> 6)] |= 1L << i;
+			addTotals(i);
+		}
+	}
+
+	/**
+	 * The planets of a fleet simulation at its current turn; fleets still in flight are left out,
+	 * as they are when a state is made from the engine's PlanetWars.
+	 */
+	public SimulationState(FleetSimulation sim) {
+		int n = sim.NumPlanets();
+		cells = new int[2 * n];
+		growth = sim.growth;
+		geometry = sim.geometry;
+		for (int i = 0; i < n; i++) {
+			cells[2 * i] = sim.Owner(i);
+			cells[2 * i + 1] = sim.NumShips(i);
+		}
+		numPlayers = highestOwner(cells);
+		players = new int[3 * (numPlayers + 1)];
+		words = (n + 63) >> 6;
+		partitions = new long[3 * words];
+		for (int i = 0; i < n; i++) {
+			hash ^= zobrist(i, cells[2 * i], cells[2 * i + 1]);
+			partitions[partition(cells[2 * i]) * words + (i >> 6)] |= 1L << i;
+			addTotals(i);
+		}
+	}
+
+	private SimulationState(SimulationState state) {
+		cells = state.cells.clone();
+		partitions = state.partitions.clone();
+		totals = state.totals.clone();
+		numPlayers = state.numPlayers;
+		players = state.players.clone();
+		words = state.words;
+		hash = state.hash;
+		growth = state.growth;
+		geometry = state.geometry;
+	}
+
+	public SimulationState copy() {
+		return new SimulationState(this);
+	}
+
+	public void simulateGrowth() {
+		reserve(3);
+		pushHash();
+		undo[undoSize++] = UNDO_GROWTH;
+		long h = hash;
+		for (int i = 0; i < cells.length; i += 2) {
+			if (cells[i] == 0 || growth[i >> 1] == 0)
+				continue;
+			int id = i >> 1;
+			h ^= zobrist(id, cells[i], cells[i + 1]);
+			cells[i + 1] += growth[id];
+			h ^= zobrist(id, cells[i], cells[i + 1]);
+		}
+		hash = h;
+		totals[MINE] += totals[3 + MINE];
+		totals[ENEMY] += totals[3 + ENEMY];
+		for (int p = 1, g = numPlayers + 2; p <= numPlayers; p++, g++) {
+			players[p] += players[g];
+		}
+	}
+
+	public void simulateAttack(int player, int source, int dest) {
+
+		if (cells[2 * source] != player) {
+			push(UNDO_NONE);
+			return;
+		}
+		int sent = cells[2 * source + 1] / 2;
+		int destShips = cells[2 * dest + 1];
+		int destOwner = cells[2 * dest];
+
+		reserve(8);
+		undo[undoSize++] = source;
+		undo[undoSize++] = cells[2 * source + 1];
+		undo[undoSize++] = dest;
+		undo[undoSize++] = destOwner;
+		undo[undoSize++] = destShips;
+		pushHash();
+		undo[undoSize++] = UNDO_ATTACK;
+
+		hash ^= zobrist(source, player, cells[2 * source + 1]);
+		removeTotals(source);
+		if (dest != source) {
+			hash ^= zobrist(dest, destOwner, destShips);
+			removeTotals(dest);
+		}
+
+		if (destShips < sent) {
+			//change owner
+			changeOwner(dest, destOwner, player);
+			destOwner = player;
+		}
+		cells[2 * source + 1] = sent;
+		cells[2 * dest] = destOwner;
+		cells[2 * dest + 1] = Math.abs(destShips - sent);
+
+		hash ^= zobrist(dest, cells[2 * dest], cells[2 * dest + 1]);
+		addTotals(dest);
+		if (dest != source) {
+			hash ^= zobrist(source, player, sent);
+			addTotals(source);
+		}
+	}
+
+	/**
+	 * Returns a mark for the current position; undo(mark) rolls back every move made since.
+	 */
+	public int mark() {
+		return undoSize;
+	}
+
+	/**
+	 * Reverts the most recent simulateGrowth() or simulateAttack().
+	 */
+	public void unmake() {
+		switch (undo[--undoSize]) {
+		case UNDO_GROWTH:
+			popHash();
+			for (int i = 0; i < cells.length; i += 2) {
+				if (cells[i] == 0)
+					continue;
+				cells[i + 1] -= growth[i >> 1];
+			}
+			totals[MINE] -= totals[3 + MINE];
+			totals[ENEMY] -= totals[3 + ENEMY];
+			for (int p = 1, g = numPlayers + 2; p <= numPlayers; p++, g++) {
+				players[p] -= players[g];
+			}
+			break;
+		case UNDO_ATTACK:
+			popHash();
+			int destShips = undo[--undoSize];
+			int destOwner = undo[--undoSize];
+			int dest = undo[--undoSize];
+			int sourceShips = undo[--undoSize];
+			int source = undo[--undoSize];
+			removeTotals(dest);
+			if (source != dest) {
+				removeTotals(source);
+			}
+			if (cells[2 * dest] != destOwner) {
+				changeOwner(dest, cells[2 * dest], destOwner);
+			}
+			cells[2 * dest] = destOwner;
+			cells[2 * dest + 1] = destShips;
+			cells[2 * source + 1] = sourceShips;
+			addTotals(dest);
+			if (source != dest) {
+				addTotals(source);
+			}
+			break;
+		default:
+			break;
+		}
+	}
+
+	public void undo(int mark) {
+		while (undoSize > mark) {
+			unmake();
+		}
+	}
+
+	private void changeOwner(int planetID, int from, int to) {
+		long bit = 1L << planetID;
+		partitions[partition(from) * words + (planetID >> 6)] &= ~bit;
+		partitions[partition(to) * words + (planetID >> 6)] |= bit;
+	}
+
+	private void addTotals(int planetID) {
+		int owner = cells[2 * planetID];
+		int p = partition(owner);
+		totals[p] += cells[2 * planetID + 1];
+		totals[3 + p] += growth[planetID];
+		totals[6 + p]++;
+		int stride = numPlayers + 1;
+		players[owner] += cells[2 * planetID + 1];
+		players[stride + owner] += growth[planetID];
+		players[2 * stride + owner]++;
+	}
+
+	private void removeTotals(int planetID) {
+		int owner = cells[2 * planetID];
+		int p = partition(owner);
+		totals[p] -= cells[2 * planetID + 1];
+		totals[3 + p] -= growth[planetID];
+		totals[6 + p]--;
+		int stride = numPlayers + 1;
+		players[owner] -= cells[2 * planetID + 1];
+		players[stride + owner] -= growth[planetID];
+		players[2 * stride + owner]--;
+	}
+
+	private static int highestOwner(int[] cells) {
+		int highest = 2;
+		for (int i = 0; i < cells.length; i += 2) {
+			highest = Math.max(highest, cells[i]);
+		}
+		return highest;
+	}
+
+	private static int partition(int owner) {
+		return owner == 1 ? MINE : owner == 0 ? NEUTRAL : ENEMY;
+	}
+
+	/** Next planet owned by player 1 with id >= from, -1 if there is none. */
+	public int nextMine(int from) {
+		return nextSetBit(MINE, from);
+	}
+
+	/** Next planet owned by any opponent (owner >= 2) with id >= from, -1 if there is none. */
+	public int nextEnemy(int from) {
+		return nextSetBit(ENEMY, from);
+	}
+
+	/** Next neutral planet with id >= from, -1 if there is none. */
+	public int nextNeutral(int from) {
+		return nextSetBit(NEUTRAL, from);
+	}
+
+	/** Next planet not owned by player 1 with id >= from, -1 if there is none. */
+	public int nextNotMine(int from) {
+		return nextClearBit(MINE, from);
+	}
+
+	/** Next planet not owned by an opponent with id >= from, -1 if there is none. */
+	public int nextNotEnemy(int from) {
+		return nextClearBit(ENEMY, from);
+	}
+
+	/** Next planet owned by the player with id >= from, -1 if there is none. */
+	public int nextOwned(int player, int from) {
+		if (player == 1) {
+			return nextMine(from);
+		}
+		if (numPlayers == 2) {
+			return nextEnemy(from);
+		}
+		for (int i = nextEnemy(from); i >= 0; i = nextEnemy(i + 1)) {
+			if (cells[2 * i] == player) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/** Next planet not owned by the player with id >= from, -1 if there is none. */
+	public int nextNotOwned(int player, int from) {
+		if (player == 1) {
+			return nextNotMine(from);
+		}
+		if (numPlayers == 2) {
+			return nextNotEnemy(from);
+		}
+		for (int i = Math.max(0, from); i < growth.length; i++) {
+			if (cells[2 * i] != player) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/** Highest player id of the game: 2 in a two-player game, 4 in a four-player one. */
+	public int numPlayers() {
+		return numPlayers;
+	}
+
+	public int numMine() {
+		return totals[6 + MINE];
+	}
+
+	public int numEnemy() {
+		return totals[6 + ENEMY];
+	}
+
+	public int numNeutral() {
+		return totals[6 + NEUTRAL];
+	}
+
+	/**
+	 * Ships on the planets of an owner: 1 is player 1, 0 neutral, and any other value all
+	 * opponents together.
+	 */
+	public int totalShips(int owner) {
+		return totals[partition(owner)];
+	}
+
+	/**
+	 * Growth rate of the planets of an owner, see totalShips(int).
+	 */
+	public int totalGrowth(int owner) {
+		return totals[3 + partition(owner)];
+	}
+
+	/** Ships on the planets of one player (or neutral, 0). */
+	public int playerShips(int player) {
+		return players[player];
+	}
+
+	/** Growth rate of the planets of one player (or neutral, 0). */
+	public int playerGrowth(int player) {
+		return players[numPlayers + 1 + player];
+	}
+
+	/** Number of planets of one player (or neutral, 0). */
+	public int playerPlanets(int player) {
+		return players[2 * (numPlayers + 1) + player];
+	}
+
+	/**
+	 * The strongest opponent by ships plus growth rate, the lowest id on ties: always 2 in a
+	 * two-player game. The evaluations compare us with it rather than with all opponents together.
+	 */
+	public int rival() {
+		if (numPlayers == 2) {
+			return 2;
+		}
+		int stride = numPlayers + 1;
+		int rival = 2;
+		int strength = players[2] + players[stride + 2];
+		for (int p = 3; p <= numPlayers; p++) {
+			int s = players[p] + players[stride + p];
+			if (s > strength) {
+				strength = s;
+				rival = p;
+			}
+		}
+		return rival;
+	}
+
+	private int nextSetBit(int set, int from) {
+		int word = from >> 6;
+		if (word >= words) {
+			return -1;
+		}
+		int base = set * words;
+		long bits = partitions[base + word] & (-1L << from);
+		while (bits == 0) {
+			if (++word == words) {
+				return -1;
+			}
+			bits = partitions[base + word];
+		}
+		return (word << 6) + Long.numberOfTrailingZeros(bits);
+	}
+
+	private int nextClearBit(int set, int from) {
+		int word = from >> 6;
+		if (word >= words) {
+			return -1;
+		}
+		int base = set * words;
+		long bits = ~partitions[base + word] & (-1L << from);
+		while (bits == 0) {
+			if (++word == words) {
+				return -1;
+			}
+			bits = ~partitions[base + word];
+		}
+		int planetID = (word << 6) + Long.numberOfTrailingZeros(bits);
+		return planetID < growth.length ? planetID : -1;
+	}
+
+	private void pushHash() {
+		undo[undoSize++] = (int) hash;
+		undo[undoSize++] = (int) (hash >>> 32);
+	}
+
+	private void popHash() {
+		long hi = undo[--undoSize];
+		long lo = undo[--undoSize];
+		hash = (hi << 32) | (lo & 0xffffffffL);
+	}
+
+	private void push(int tag) {
+		reserve(1);
+		undo[undoSize++] = tag;
+	}
+
+	private void reserve(int count) {
+		if (undoSize + count > undo.length) {
+			undo = Arrays.copyOf(undo, Math.max(64, 2 * undo.length));
+		}
+	}
+
+	/**
+	 * Hash of the current position; equal positions have equal hashes, whatever the move order.
+	 */
+	public long hash() {
+		return hash;
+	}
+
+	/**
+	 * Random-looking key for one (planet, owner, ships) triple. Ship counts are unbounded, so
+	 * instead of a lookup table the triple is run through the SplitMix64 finalizer.
+	 */
+	static long zobrist(int planetID, int owner, int ships) {
+		long z = 0x9E3779B97F4A7C15L * (planetID + 1) + 0xC2B2AE3D27D4EB4FL * owner + 0x165667B19E3779F9L * ships;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	public int NumPlanets() {
+		return growth.length;
+	}
+
+	public int Owner(int planetID) {
+		return cells[2 * planetID];
+	}
+
+	public int NumShips(int planetID) {
+		return cells[2 * planetID + 1];
+	}
+
+	public int GrowthRate(int planetID) {
+		return growth[planetID];
+	}
+
+	/**
+	 * Materializes a Planet object for the given id. Only meant for code that still works
+	 * with Planet objects; the simulation itself never allocates them.
+	 */
+	public Planet GetPlanet(int planetID) {
+		return new Planet(planetID, cells[2 * planetID], cells[2 * planetID + 1],
+				growth[planetID], geometry.x[planetID], geometry.y[planetID]);
+	}
+
+	public int Distance(int sourcePlanet, int destinationPlanet) {
+		return geometry.Distance(sourcePlanet, destinationPlanet);
+	}
+
+	public MapGeometry Geometry() {
+		return geometry;
+	}
+}
@@ -0,0 +1,256 @@
+import java.io.*;
+import java.lang.reflect.*;
+import java.net.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/** Round-robin tournament between bots on the in-process GameEngine.
+ * Every pair of bots plays every map twice, once from each side, for the given number of
+ * rounds. Games run in parallel on all cores and the win rate of every pairing is reported
+ * with a 95% Wilson confidence interval (draws count as half a win).
+ *
+ * The bots keep their search and transposition table in static fields, so two games running
+ * at the same time must not share them. Each worker thread therefore loads the bots in its
+ * own class loaders, one per side, just as the external engine runs every bot in its own JVM.
+ *
+ * Usage: java Tournament [-rounds N] [-threads N] [-turns N] [-maps dir | -generate N] [-seed S] bot...
+ * Bots are JorroZorRoBot, InceptionBot, InceptionBot31 and SimpleBot, optionally with a search
+ * mode (JorroZorRoBot:mcts against JorroZorRoBot:alphabeta). The alpha-beta bots
+ * think for search.timeLimit ms per turn, so run with for example -Dsearch.timeLimit=20 and a
+ * smaller -Dsearch.ttMegabytes to play many games.
+ */
+
+public class Tournament {
+
+	int rounds = 1;
+	int threads = Runtime.getRuntime().availableProcessors();
+	int maxTurns = GameEngine.DEFAULT_MAX_TURNS;
+	List<String> maps = new ArrayList<String>();
+	List<String> mapNames = new ArrayList<String>();
+	List<String> bots = new ArrayList<String>();
+
+	// results[a][b]: games of bot a against bot b, as wins, losses, draws of a
+	int[][][] results;
+
+	public static void main(String[] args) throws Exception {
+		Tournament tournament = new Tournament();
+		File mapDirectory = null;
+		int generate = 100;
+		long seed = 1;
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("-rounds")) {
+				tournament.rounds = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("-threads")) {
+				tournament.threads = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("-turns")) {
+				tournament.maxTurns = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("-maps")) {
+				mapDirectory = new File(args[++i]);
+			} else if (args[i].equals("-generate")) {
+				generate = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("-seed")) {
+				seed = Long.parseLong(args[++i]);
+			} else {
+				tournament.bots.add(args[i]);
+			}
+		}
+		if (tournament.bots.size() < 2) {
+			System.err.println("usage: java Tournament [-rounds N] [-threads N] [-turns N] [-maps dir | -generate N] [-seed S] bot bot...");
+			return;
+		}
+		for (String bot : tournament.bots) {
+			Bot.of(bot);
+		}
+		if (mapDirectory != null) {
+			tournament.loadMaps(mapDirectory);
+		} else {
+			Random random = new Random(seed);
+			for (int i = 0; i < generate; i++) {
+				tournament.maps.add(GameEngine.randomMap(random, 5 + random.nextInt(11)));
+				tournament.mapNames.add("generated" + i);
+			}
+		}
+
+		// the bots' debug output would only slow the games down
+		PrintStream err = System.err;
+		System.setErr(new PrintStream(new OutputStream() {
+			public void write(int b) {
+			}
+			public void write(byte[] b, int off, int len) {
+			}
+		}));
+		long start = System.nanoTime();
+		tournament.run();
+		System.setErr(err);
+		System.out.println(tournament.report((System.nanoTime() - start) / 1000000L));
+	}
+
+	void loadMaps(File directory) throws IOException {
+		File[] files = directory.listFiles();
+		if (files == null) {
+			throw new FileNotFoundException(directory.toString());
+		}
+		Arrays.sort(files);
+		for (File file : files) {
+			if (file.getName().endsWith(".txt")) {
+				maps.add(read(file));
+				mapNames.add(file.getName());
+			}
+		}
+	}
+
+	/**
+	 * Plays all games and fills in results.
+	 */
+	public void run() throws InterruptedException {
+		int n = bots.size();
+		results = new int[n][n][3];
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		final ThreadLocal<Side[]> sides = new ThreadLocal<Side[]>() {
+			protected Side[] initialValue() {
+				return new Side[] { new Side(), new Side() };
+			}
+		};
+		List<Future<?>> games = new ArrayList<Future<?>>();
+		for (int round = 0; round < rounds; round++) {
+			for (final String map : maps) {
+				for (int a = 0; a < n; a++) {
+					for (int b = 0; b < n; b++) {
+						if (a == b) {
+							continue;
+						}
+						final int first = a;
+						final int second = b;
+						games.add(executor.submit(new Runnable() {
+							public void run() {
+								Side[] side = sides.get();
+								GameEngine engine = new GameEngine(map);
+								engine.maxTurns = maxTurns;
+								int winner = engine.play(side[0].player(bots.get(first)), side[1].player(bots.get(second)));
+								record(first, second, winner);
+							}
+						}));
+					}
+				}
+			}
+		}
+		try {
+			for (Future<?> game : games) {
+				game.get();
+			}
+		} catch (ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	synchronized void record(int first, int second, int winner) {
+		int result = winner == 1 ? 0 : winner == 2 ? 1 : 2;
+		results[first][second][result]++;
+		results[second][first][result == 2 ? 2 : 1 - result]++;
+	}
+
+	public String report(long millis) {
+		StringBuilder s = new StringBuilder();
+		int n = bots.size();
+		int games = 0;
+		s.append(String.format("%-24s %-24s %6s %6s %6s %8s %17s%n", "bot", "opponent", "wins", "losses", "draws", "score", "95% interval"));
+		for (int a = 0; a < n; a++) {
+			for (int b = 0; b < n; b++) {
+				if (a == b) {
+					continue;
+				}
+				int[] r = results[a][b];
+				int played = r[0] + r[1] + r[2];
+				games += played;
+				double score = played == 0 ? 0. : (r[0] + r[2] / 2.) / played;
+				double[] interval = wilson(r[0] + r[2] / 2., played);
+				s.append(String.format("%-24s %-24s %6d %6d %6d %7.1f%% [%5.1f%%, %5.1f%%]%n",
+						bots.get(a), bots.get(b), r[0], r[1], r[2], 100. * score, 100. * interval[0], 100. * interval[1]));
+			}
+		}
+		s.append(String.format("%d games on %d maps in %.1f s, %d threads", games / 2, maps.size(), millis / 1000., threads));
+		return s.toString();
+	}
+
+	/**
+	 * 95% Wilson score interval for a win rate of wins out of n games.
+	 */
+	static double[] wilson(double wins, int n) {
+		if (n == 0) {
+			return new double[] { 0., 1. };
+		}
+		double z = 1.96;
+		double p = wins / n;
+		double denominator = 1 + z * z / n;
+		double center = (p + z * z / (2 * n)) / denominator;
+		double margin = z * Math.sqrt(p * (1 - p) / n + z * z / (4. * n * n)) / denominator;
+		return new double[] { Math.max(0., center - margin), Math.min(1., center + margin) };
+	}
+
+	/**
+	 * One side of the games played by a worker thread: a class loader of its own holding a
+	 * private copy of every bot class and its static state.
+	 */
+	static class Side {
+		final Method turn;
+		final Method setWeights;
+
+		Side() {
+			try {
+				List<URL> urls = new ArrayList<URL>();
+				for (String path : System.getProperty("java.class.path").split(File.pathSeparator)) {
+					urls.add(new File(path).toURI().toURL());
+				}
+				ClassLoader loader = new URLClassLoader(urls.toArray(new URL[0]), ClassLoader.getPlatformClassLoader());
+				Class<?> bot = loader.loadClass("Bot");
+				turn = bot.getMethod("turn", String.class, String.class);
+				setWeights = bot.getMethod("setWeights", String.class, double[].class);
+			} catch (Exception e) {
+				throw new RuntimeException(e);
+			}
+		}
+
+		/**
+		 * Sets the weights of the bot in this side's class loader (see Bot.setWeights).
+		 */
+		void setWeights(String bot, double[] weights) {
+			try {
+				setWeights.invoke(null, bot, weights);
+			} catch (InvocationTargetException e) {
+				throw new RuntimeException(e.getCause());
+			} catch (IllegalAccessException e) {
+				throw new RuntimeException(e);
+			}
+		}
+
+		GameEngine.Player player(final String bot) {
+			return new GameEngine.Player() {
+				public int[] DoTurn(String gameState) {
+					try {
+						return (int[]) turn.invoke(null, bot, gameState);
+					} catch (InvocationTargetException e) {
+						throw new RuntimeException(e.getCause());
+					} catch (IllegalAccessException e) {
+						throw new RuntimeException(e);
+					}
+				}
+			};
+		}
+	}
+
+	static String read(File file) throws IOException {
+		StringBuilder message = new StringBuilder();
+		BufferedReader reader = new BufferedReader(new FileReader(file));
+		try {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				message.append(line).append('\n');
+			}
+		} finally {
+			reader.close();
+		}
+		return message.toString();
+	}
+}
@@ -0,0 +1,131 @@
+/** Fixed-size transposition table for the alpha-beta search.
+ * Entries are keyed by SimulationState.hash() and store the score, the depth it was searched to,
+ * whether the score is exact or a bound, and the best move found. The table is sized from a
+ * memory budget (system property search.ttMegabytes, default 16) and never grows.
+ *
+ * Replacement is by depth: an entry is only overwritten by a search of at least the same depth,
+ * unless it was written during an earlier turn (see newSearch()).
+ */
+
+public class TranspositionTable {
+
+	public static final int EXACT = 0;
+	public static final int LOWER = 1;
+	public static final int UPPER = 2;
+
+	// bytes per entry: key, packed data and generation
+	private static final int ENTRY_BYTES = 8 + 8 + 1;
+
+	final long[] keys;
+	// score (32 bits) | depth (8) | flag (2) | source + 1 (11) | dest + 1 (11)
+	final long[] data;
+	final byte[] generations;
+	final int mask;
+	final int megabytes;
+	byte generation = 1;
+
+	public long probes;
+	public long hits;
+	public long cutoffs;
+	public long stores;
+
+	public TranspositionTable() {
+		this(Integer.getInteger("search.ttMegabytes", 16));
+	}
+
+	public TranspositionTable(int megabytes) {
+		this.megabytes = Math.max(1, megabytes);
+		long budget = this.megabytes * 1024L * 1024L;
+		int entries = Integer.highestOneBit((int) Math.min(1 << 30, budget / ENTRY_BYTES));
+		keys = new long[entries];
+		data = new long[entries];
+		generations = new byte[entries];
+		mask = entries - 1;
+	}
+
+	/**
+	 * Starts a new search: older entries may be overwritten regardless of their depth.
+	 * Statistics are reset as well.
+	 */
+	public void newSearch() {
+		generation++;
+		if (generation == 0) {
+			generation = 1;
+		}
+		probes = 0;
+		hits = 0;
+		cutoffs = 0;
+		stores = 0;
+	}
+
+	/**
+	 * Empties the table, so the next search starts without any stored positions.
+	 */
+	public void clear() {
+		java.util.Arrays.fill(generations, (byte) 0);
+	}
+
+	/**
+	 * Looks up a position.
+	 * @return the slot holding the position, or -1 if it is not in the table
+	 */
+	public int probe(long key) {
+		probes++;
+		int slot = (int) key & mask;
+		if (generations[slot] != 0 && keys[slot] == key) {
+			hits++;
+			return slot;
+		}
+		return -1;
+	}
+
+	public void store(long key, int depth, int flag, int score, int source, int dest) {
+		int slot = (int) key & mask;
+		if (generations[slot] == generation && keys[slot] != key && depth(slot) > depth) {
+			return;
+		}
+		stores++;
+		keys[slot] = key;
+		generations[slot] = generation;
+		data[slot] = (score & 0xffffffffL)
+				| ((long) Math.min(depth, 255) << 32)
+				| ((long) flag << 40)
+				| ((long) (source + 1) << 42)
+				| ((long) (dest + 1) << 53);
+	}
+
+	public int score(int slot) {
+		return (int) data[slot];
+	}
+
+	public int depth(int slot) {
+		return (int) (data[slot] >>> 32) & 0xff;
+	}
+
+	public int flag(int slot) {
+		return (int) (data[slot] >>> 40) & 0x3;
+	}
+
+	/** Source planet of the stored best move, -1 if there is none. */
+	public int source(int slot) {
+		return (int) ((data[slot] >>> 42) & 0x7ff) - 1;
+	}
+
+	/** Destination planet of the stored best move, -1 if there is none. */
+	public int dest(int slot) {
+		return (int) ((data[slot] >>> 53) & 0x7ff) - 1;
+	}
+
+	public int size() {
+		return keys.length;
+	}
+
+	public double hitRate() {
+		return probes == 0 ? 0. : (double) hits / probes;
+	}
+
+	public String report() {
+		return String.format("tt: %d probes, %d hits (%.1f%%), %d cutoffs, %d stores, %d entries",
+				probes, hits, 100. * hitRate(), cutoffs, stores, keys.length);
+	}
+}
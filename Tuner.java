@@ -0,0 +1,299 @@
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/** Tunes the weights of a searching bot by self-play, with SPSA (simultaneous perturbation
+ * stochastic approximation).
+ * The weights are the growth weight of the evaluation and the growth factor, zero-growth score and
+ * distance weight of the move heuristic (see Bot.setWeights). Every game pair draws a random sign
+ * for each weight and plays the bot with the weights shifted up by the perturbation size
+ * against the bot with them shifted down, on a generated map, once from each side. The weights
+ * then move towards the winning side, by a step that shrinks as the tuning goes on.
+ *
+ * Game pairs are played in batches on all cores, each side of a game in its own class loader as
+ * in the Tournament, and the weights are updated after each batch. The searches default to a
+ * fixed depth without a time limit (-depth), so games are fast and don't depend on the load of
+ * the machine.
+ *
+ * After every batch the weights are written to the checkpoint file (-checkpoint, default
+ * tuner.properties), with the settings that shape the games: seed, pairs, batch, depth, turns
+ * and rate. A run that finds the file continues where it stopped with the checkpoint's settings
+ * instead of its own; the maps, perturbations and gains only depend on them and the number of the
+ * game pair, so a resumed run plays the same games as one that wasn't interrupted, whatever the
+ * machine.
+ *
+ * Progress is printed after every batch: the pairs played so far, the games per hour, the share
+ * of the batch's games that one side won net (a pair won 1-1 counts as undecided) and the weights.
+ * JorroZorRoBot only attacks enemy planets at its first move, so on the mirrored maps most of
+ * its self-play games are drawn; InceptionBot31 is the default.
+ *
+ * Usage: java Tuner [-bot name] [-pairs N] [-batch N] [-threads N] [-depth N] [-turns N]
+ *                   [-rate R] [-seed S] [-checkpoint file]
+ */
+
+public class Tuner {
+
+	/** One tuned weight: its default value, the size of its perturbations and its range. */
+	static class Parameter {
+		final String name;
+		final double value;
+		final double perturbation;
+		final double min;
+		final double max;
+
+		Parameter(String name, double value, double perturbation, double min, double max) {
+			this.name = name;
+			this.value = value;
+			this.perturbation = perturbation;
+			this.min = min;
+			this.max = max;
+		}
+
+		double clamp(double v) {
+			return Math.max(min, Math.min(max, v));
+		}
+	}
+
+	/** In the order of Bot.setWeights. */
+	static final Parameter[] PARAMETERS = {
+		new Parameter("growthWeight", 1, 0.5, 0, 20),
+		new Parameter("growthFactor", 4, 1, 0, 20),
+		new Parameter("zeroGrowthScore", -500, 50, -1000, 0),
+		new Parameter("distanceWeight", 1, 1, 0, 10),
+	};
+
+	// SPSA gain sequences: step a / (A + k + 1)^ALPHA, perturbation c / (k + 1)^GAMMA
+	static final double ALPHA = 0.602;
+	static final double GAMMA = 0.101;
+
+	String bot = "InceptionBot31";
+	int pairs = 10000;
+	int batch = 4 * Runtime.getRuntime().availableProcessors();
+	int threads = Runtime.getRuntime().availableProcessors();
+	int maxTurns = 100;
+	int depth = 1;
+	double rate = 0.2;
+	long seed = 1;
+	File checkpoint = new File("tuner.properties");
+
+	double[] theta = new double[PARAMETERS.length];
+	int pairsPlayed = 0;
+	long millis = 0;
+
+	public static void main(String[] args) throws Exception {
+		Tuner tuner = new Tuner();
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("-bot")) {
+				tuner.bot = args[++i];
+			} else if (args[i].equals("-pairs")) {
+				tuner.pairs = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("-batch")) {
+				tuner.batch = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("-threads")) {
+				tuner.threads = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("-depth")) {
+				tuner.depth = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("-turns")) {
+				tuner.maxTurns = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("-rate")) {
+				tuner.rate = Double.parseDouble(args[++i]);
+			} else if (args[i].equals("-seed")) {
+				tuner.seed = Long.parseLong(args[++i]);
+			} else if (args[i].equals("-checkpoint")) {
+				tuner.checkpoint = new File(args[++i]);
+			} else {
+				System.err.println("usage: java Tuner [-bot name] [-pairs N] [-batch N] [-threads N] [-depth N] [-turns N] [-rate R] [-seed S] [-checkpoint file]");
+				return;
+			}
+		}
+		for (int i = 0; i < PARAMETERS.length; i++) {
+			tuner.theta[i] = PARAMETERS[i].value;
+		}
+		if (tuner.checkpoint.exists()) {
+			tuner.load();
+			System.out.println(String.format(Locale.ROOT,
+					"resuming after %d game pairs: pairs %d, batch %d, depth %d, turns %d, rate %s, seed %d",
+					tuner.pairsPlayed, tuner.pairs, tuner.batch, tuner.depth, tuner.maxTurns, tuner.rate, tuner.seed));
+		}
+		// read by the bots' searches when their classes are loaded, so set before any game
+		if (System.getProperty("search.timeLimit") == null) {
+			System.setProperty("search.maxDepth", Integer.toString(tuner.depth));
+			System.setProperty("search.timeLimit", Long.toString(3600 * 1000L));
+		}
+		// fails early for a bot without weights
+		Bot.setWeights(tuner.bot, tuner.theta);
+
+		PrintStream err = System.err;
+		System.setErr(new PrintStream(new OutputStream() {
+			public void write(int b) {
+			}
+			public void write(byte[] b, int off, int len) {
+			}
+		}));
+		try {
+			tuner.run();
+		} finally {
+			System.setErr(err);
+		}
+	}
+
+	/**
+	 * Plays batches of game pairs until pairs have been played, updating and checkpointing the
+	 * weights after every batch.
+	 */
+	public void run() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		final ThreadLocal<Tournament.Side[]> sides = new ThreadLocal<Tournament.Side[]>() {
+			protected Tournament.Side[] initialValue() {
+				return new Tournament.Side[] { new Tournament.Side(), new Tournament.Side() };
+			}
+		};
+		try {
+			while (pairsPlayed < pairs) {
+				long start = System.nanoTime();
+				int n = Math.min(batch, pairs - pairsPlayed);
+				final double[] base = theta.clone();
+				List<Future<double[]>> results = new ArrayList<Future<double[]>>();
+				for (int j = 0; j < n; j++) {
+					final int pair = pairsPlayed + j;
+					results.add(executor.submit(new Callable<double[]>() {
+						public double[] call() {
+							return playPair(sides.get(), base, pair);
+						}
+					}));
+				}
+				double[] step = new double[theta.length];
+				double points = 0;
+				for (Future<double[]> result : results) {
+					double[] update;
+					try {
+						update = result.get();
+					} catch (ExecutionException e) {
+						throw new RuntimeException(e.getCause());
+					}
+					for (int i = 0; i < step.length; i++) {
+						step[i] += update[i];
+					}
+					points += Math.abs(update[step.length]);
+				}
+				for (int i = 0; i < theta.length; i++) {
+					theta[i] = PARAMETERS[i].clamp(theta[i] + step[i]);
+				}
+				pairsPlayed += n;
+				millis += (System.nanoTime() - start) / 1000000L;
+				save();
+				System.out.println(report(points / n));
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * Plays the pair with the given number: theta shifted up against theta shifted down, once from
+	 * each side.
+	 * @return the update of every weight, followed by the score difference of the pair
+	 */
+	double[] playPair(Tournament.Side[] side, double[] base, int pair) {
+		Random random = new Random(seed * 1000003L + pair);
+		String map = GameEngine.randomMap(random, 5 + random.nextInt(11));
+		double k = pair / (double) batch;
+		double a = rate * Math.pow(0.1 * pairs / batch + 1, ALPHA) / Math.pow(0.1 * pairs / batch + k + 1, ALPHA);
+		double c = 1 / Math.pow(k + 1, GAMMA);
+
+		double[] delta = new double[base.length];
+		double[] plus = new double[base.length];
+		double[] minus = new double[base.length];
+		for (int i = 0; i < base.length; i++) {
+			delta[i] = random.nextBoolean() ? 1 : -1;
+			double shift = c * PARAMETERS[i].perturbation * delta[i];
+			plus[i] = PARAMETERS[i].clamp(base[i] + shift);
+			minus[i] = PARAMETERS[i].clamp(base[i] - shift);
+		}
+		side[0].setWeights(bot, plus);
+		side[1].setWeights(bot, minus);
+		double score = points(play(side[0], side[1], map), 1) + points(play(side[1], side[0], map), 2);
+		// score of the plus side minus that of the minus side, -2..2
+		double result = 2 * score - 2;
+
+		double[] update = new double[base.length + 1];
+		for (int i = 0; i < base.length; i++) {
+			update[i] = a * c * PARAMETERS[i].perturbation * result * delta[i] / 2;
+		}
+		update[base.length] = result;
+		return update;
+	}
+
+	int play(Tournament.Side first, Tournament.Side second, String map) {
+		GameEngine engine = new GameEngine(map);
+		engine.maxTurns = maxTurns;
+		return engine.play(first.player(bot), second.player(bot));
+	}
+
+	/**
+	 * 1 for a win of the player, 0.5 for a draw, 0 for a loss.
+	 */
+	static double points(int winner, int player) {
+		return winner == player ? 1 : winner == 0 ? 0.5 : 0;
+	}
+
+	String report(double decisive) {
+		StringBuilder s = new StringBuilder();
+		s.append(String.format("%d pairs, %.0f games/hour, %.2f decisive:", pairsPlayed,
+				millis == 0 ? 0. : 2. * pairsPlayed * 3600000. / millis, decisive / 2));
+		for (int i = 0; i < theta.length; i++) {
+			s.append(String.format(Locale.ROOT, " %s=%.3f", PARAMETERS[i].name, theta[i]));
+		}
+		return s.toString();
+	}
+
+	void save() throws IOException {
+		Properties properties = new Properties();
+		properties.setProperty("bot", bot);
+		properties.setProperty("seed", Long.toString(seed));
+		properties.setProperty("pairs", Integer.toString(pairs));
+		properties.setProperty("batch", Integer.toString(batch));
+		properties.setProperty("depth", Integer.toString(depth));
+		properties.setProperty("turns", Integer.toString(maxTurns));
+		properties.setProperty("rate", Double.toString(rate));
+		properties.setProperty("played", Integer.toString(pairsPlayed));
+		properties.setProperty("millis", Long.toString(millis));
+		for (int i = 0; i < theta.length; i++) {
+			properties.setProperty(PARAMETERS[i].name, Double.toString(theta[i]));
+		}
+		File temporary = new File(checkpoint.getPath() + ".tmp");
+		OutputStream out = new FileOutputStream(temporary);
+		try {
+			properties.store(out, "Tuner checkpoint");
+		} finally {
+			out.close();
+		}
+		// replace the old checkpoint in one step, so an interrupted write never loses it
+		Files.move(temporary.toPath(), checkpoint.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	void load() throws IOException {
+		Properties properties = new Properties();
+		InputStream in = new FileInputStream(checkpoint);
+		try {
+			properties.load(in);
+		} finally {
+			in.close();
+		}
+		if (!bot.equals(properties.getProperty("bot", bot))) {
+			throw new IOException(checkpoint + " tunes " + properties.getProperty("bot") + ", not " + bot);
+		}
+		seed = Long.parseLong(properties.getProperty("seed", Long.toString(seed)));
+		pairs = Integer.parseInt(properties.getProperty("pairs", Integer.toString(pairs)));
+		batch = Integer.parseInt(properties.getProperty("batch", Integer.toString(batch)));
+		depth = Integer.parseInt(properties.getProperty("depth", Integer.toString(depth)));
+		maxTurns = Integer.parseInt(properties.getProperty("turns", Integer.toString(maxTurns)));
+		rate = Double.parseDouble(properties.getProperty("rate", Double.toString(rate)));
+		pairsPlayed = Integer.parseInt(properties.getProperty("played", "0"));
+		millis = Long.parseLong(properties.getProperty("millis", "0"));
+		for (int i = 0; i < theta.length; i++) {
+			theta[i] = Double.parseDouble(properties.getProperty(PARAMETERS[i].name, Double.toString(theta[i])));
+		}
+	}
+}
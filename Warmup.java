@@ -0,0 +1,173 @@
+import java.util.*;
+
+/** JIT warm-up on the first turn of a game.
+ * The first turn is otherwise searched by the interpreter and C1-compiled code, and is the slowest
+ * of the game. With a warm-up, the first DoTurn starts by searching synthetic positions of the
+ * real map: the map itself with the garrisons scaled at random, and mid-game positions in which
+ * the neutral planets are shared out among the players and fleets are under way. They run
+ * through the bot's own search (whichever SearchDriver mode is selected) and its simulation code,
+ * so the hot methods are compiled by C2 before the real search starts.
+ *
+ * Warm-up is off by default; switch it on with the system property search.warmup=<ms> (or
+ * <bot>.search.warmup). It is bounded so that it never puts the first turn at risk: it stops
+ * after that many milliseconds, and at the latest when the time left in the turn
+ * (search.turnTime, default 1000 ms, the engine's limit) is only enough for the real search's
+ * time limit plus a margin of MARGIN_MILLIS; should it overrun, SearchDriver shortens the first
+ * real search to the time that is left. Each synthetic search gets a quarter of the warm-up at
+ * most, without pondering, and the transposition table is cleared afterwards. The time spent is
+ * recorded as a SearchEvents.Warmup event, and printed to System.err with search.verbose.
+ */
+
+public class Warmup {
+
+	/** Time kept free between the end of the warm-up plus the real search and the turn's limit. */
+	static final long MARGIN_MILLIS = 100;
+
+	/** Maximum duration of the warm-up. */
+	public final long millis;
+
+	/** Time the engine allows for the first turn. */
+	public final long turnMillis;
+
+	/** Time the last warm-up took, in milliseconds. */
+	public long elapsedMillis;
+
+	/** Number of synthetic positions searched by the last warm-up. */
+	public int positions;
+
+	/** Print a one-line summary of the warm-up to System.err (system property search.verbose). */
+	public boolean verbose = Boolean.getBoolean("search.verbose");
+
+	public Warmup(long millis, long turnMillis) {
+		this.millis = millis;
+		this.turnMillis = turnMillis;
+	}
+
+	/**
+	 * The warm-up of the given bot, or null if it doesn't warm up.
+	 */
+	public static Warmup of(String bot) {
+		long millis = Long.getLong(bot + ".search.warmup", Long.getLong("search.warmup", 0));
+		if (millis <= 0) {
+			return null;
+		}
+		return new Warmup(millis, Long.getLong(bot + ".search.turnTime", Long.getLong("search.turnTime", 1000)));
+	}
+
+	/**
+	 * Searches synthetic positions of the map of pw with the driver's search until the warm-up's
+	 * time is up, leaving the driver as it was.
+	 */
+	public void run(SearchDriver driver, PlanetWars pw) {
+		// the first event loads the Flight Recorder classes, which is part of the warm-up
+		long start = System.nanoTime();
+		SearchEvents.Warmup event = new SearchEvents.Warmup();
+		event.begin();
+		long budget = Math.min(millis, turnMillis - driver.timeLimitMillis() - MARGIN_MILLIS);
+		positions = 0;
+
+		long[] limits = driver.timeLimits();
+		Ponder ponder = driver.ponder;
+		int source = driver.source;
+		int dest = driver.dest;
+		int score = driver.score;
+		driver.ponder = null;
+		try {
+			Random random = new Random(seed(pw));
+			long deadline = start + budget * 1000000L;
+			while (true) {
+				long remaining = (deadline - System.nanoTime()) / 1000000L;
+				if (remaining <= 0) {
+					break;
+				}
+				long slice = Math.min(remaining, Math.max(1, budget / 4));
+				driver.setTimeLimits(new long[] { slice, slice, slice });
+				driver.search(new PlanetWars(synthetic(pw, random, positions)));
+				positions++;
+			}
+		} finally {
+			driver.setTimeLimits(limits);
+			driver.ponder = ponder;
+			driver.source = source;
+			driver.dest = dest;
+			driver.score = score;
+			// the synthetic positions are of no use to the real search
+			driver.table.clear();
+		}
+		elapsedMillis = (System.nanoTime() - start) / 1000000L;
+		if (verbose) {
+			System.err.println(report(budget));
+		}
+		if (event.shouldCommit()) {
+			event.bot = driver.bot;
+			event.budget = Math.max(0, budget);
+			event.positions = positions;
+			event.commit();
+		}
+	}
+
+	String report(long budget) {
+		if (budget <= 0) {
+			return String.format("warm-up: skipped, no time left in a turn of %d ms", turnMillis);
+		}
+		return String.format("warm-up: %d ms of %d ms, %d synthetic positions", elapsedMillis, budget, positions);
+	}
+
+	/**
+	 * A synthetic position of the map in the engine's format: even numbers are the position itself
+	 * with its garrisons scaled by 0.5 to 1.5, odd numbers mid-game positions.
+	 */
+	static String synthetic(PlanetWars pw, Random random, int number) {
+		int numPlanets = pw.NumPlanets();
+		int players = 2;
+		for (int i = 0; i < numPlanets; i++) {
+			players = Math.max(players, pw.GetPlanet(i).Owner());
+		}
+		boolean midGame = number % 2 == 1;
+		int[] owner = new int[numPlanets];
+		int[] ships = new int[numPlanets];
+		for (int i = 0; i < numPlanets; i++) {
+			Planet p = pw.GetPlanet(i);
+			owner[i] = p.Owner();
+			ships[i] = (int) (p.NumShips() * (0.5 + random.nextDouble()));
+			if (midGame && owner[i] == 0) {
+				// a third each stays neutral, becomes ours or an opponent's
+				int k = random.nextInt(3);
+				owner[i] = k == 0 ? 0 : k == 1 ? 1 : 2 + random.nextInt(players - 1);
+				ships[i] = 1 + random.nextInt(100);
+			}
+		}
+		StringBuilder s = new StringBuilder();
+		for (int i = 0; i < numPlanets; i++) {
+			Planet p = pw.GetPlanet(i);
+			s.append("P ").append(p.X()).append(' ').append(p.Y()).append(' ').append(owner[i]).append(' ')
+					.append(ships[i]).append(' ').append(p.GrowthRate()).append('\n');
+		}
+		if (midGame) {
+			for (int k = 0; k < numPlanets / 4; k++) {
+				int source = random.nextInt(numPlanets);
+				int dest = random.nextInt(numPlanets);
+				if (owner[source] == 0 || source == dest) {
+					continue;
+				}
+				int trip = pw.Distance(source, dest);
+				s.append("F ").append(owner[source]).append(' ').append(1 + random.nextInt(50)).append(' ')
+						.append(source).append(' ').append(dest).append(' ').append(trip).append(' ')
+						.append(1 + random.nextInt(trip)).append('\n');
+			}
+		}
+		return s.toString();
+	}
+
+	/**
+	 * A seed that only depends on the map, so a warm-up plays the same positions every time.
+	 */
+	private static long seed(PlanetWars pw) {
+		long seed = pw.NumPlanets();
+		for (int i = 0; i < pw.NumPlanets(); i++) {
+			Planet p = pw.GetPlanet(i);
+			seed = 31 * seed + Double.doubleToLongBits(p.X()) + 7 * Double.doubleToLongBits(p.Y());
+		}
+		return seed;
+	}
+}